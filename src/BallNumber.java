@@ -0,0 +1,4 @@
+// This enumerated type names the balls of a rack, the cue ball first
+enum BallNumber {
+    CUE_BALL,B1,B2,B3,B4,B5,B6,B7,B8,B9,B10,B11,B12,B13,B14,B15
+}
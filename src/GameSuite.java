@@ -15,9 +15,10 @@ public class GameSuite extends Application {
     // Creates the text, buttons, panes, and overall scene for the GameSuite window
     private Text greeting = new Text("Welcome to the Game Suite!\nPick a game to play:");
     private Button ticTacToe = new Button("Tic Tac Toe");
+    private Button ultimateTicTacToe = new Button("Ultimate Tic Tac Toe");
     private Button minesweeper = new Button("Minesweeper");
     private Button pool = new Button("8-Ball Pool (unfinished)");
-    private VBox buttons = new VBox(ticTacToe, minesweeper, pool);
+    private VBox buttons = new VBox(ticTacToe, ultimateTicTacToe, minesweeper, pool);
     private VBox pane = new VBox(greeting, buttons);
     private Scene scene = new Scene(pane, 500, 400);
 
@@ -31,6 +32,8 @@ public class GameSuite extends Application {
         // Set alignment, font, and spacing for the buttons
         ticTacToe.setFont(new Font(20));
         ticTacToe.setPrefWidth(300 );
+        ultimateTicTacToe.setFont(new Font(20));
+        ultimateTicTacToe.setPrefWidth(300);
         minesweeper.setFont(new Font(20));
         minesweeper.setPrefWidth(300);
         pool.setFont(new Font(20));
@@ -48,6 +51,13 @@ public class GameSuite extends Application {
             ticTacToeUI.start(primaryStage);
         });
 
+        // When pressed, ultimateTicTacToe button closes window and launches UltimateTicTacToeUI
+        ultimateTicTacToe.setOnAction(e -> {
+            primaryStage.close();
+            UltimateTicTacToeUI ultimateTicTacToeUI = new UltimateTicTacToeUI();
+            ultimateTicTacToeUI.start(primaryStage);
+        });
+
         // When pressed, minesweeper button closes window and launches MinesweeperUI
         minesweeper.setOnAction(e -> {
             primaryStage.close();
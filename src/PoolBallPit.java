@@ -0,0 +1,179 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.SplittableRandom;
+
+// This class fills a table far larger than a real one with hundreds or thousands of balls, sets every one of them
+// moving at once, and measures how fast the physics keeps up, to check that it scales with the number of balls. The
+// pit is sized so that every ball has the same room whatever the count, so each ball meets about as many others and
+// has about as many events per second of play, and a simulation that scales well costs the same per ball however
+// many there are. One that tested every pair of balls, as PoolTable once did each frame, would cost in proportion to
+// the number of balls per ball, and fail the check long before the largest pit.
+//
+// The pit is played frame by frame at 60 frames a second, as PoolTable plays a table, so the cost of working out
+// where every ball is each frame is counted along with the events.
+final class PoolBallPit {
+
+    // Each ball gets a square of the pit this wide to itself, in meters, and starts somewhere in it
+    static final double SPACING = 2.5 * PoolPhysics.CONTACT_DISTANCE;
+
+    // The pit is twice as wide as it is high, like a table
+    private static final int ASPECT = 2;
+
+    // Balls are struck at up to this speed, in m/s, with the cue tip up to this far off centre
+    private static final double MAX_SPEED = 2;
+    private static final double MAX_TIP_OFFSET = 0.3;
+
+    // How much of the play is measured, in seconds of simulated time, and how long each frame is
+    private static final double SECONDS = 3;
+    private static final double FRAME_SECONDS = 1.0 / 60;
+
+    // The largest pit may cost at most this many times as much per ball as the smallest before the check fails.
+    // Events wait in a heap, so some growth with the number of balls is expected, as is some from the largest pits
+    // no longer fitting in the processor's caches.
+    static final double MAX_COST_RATIO = 2.5;
+
+    private PoolBallPit() {
+    }
+
+    // Returns a pit holding count balls at rest, each placed at random within its own square of a grid of squares
+    // SPACING wide, so that no two overlap
+    static PoolPhysics fill(int count, SplittableRandom random) {
+        int columns = (int) Math.ceil(Math.sqrt((double) count * ASPECT));
+        int rows = (count + columns - 1) / columns;
+        PoolPhysics pit = PoolPhysics.newPit(columns * SPACING, rows * SPACING);
+        double room = SPACING - PoolPhysics.CONTACT_DISTANCE;
+        for (int i = 0 ; i < count ; i++) {
+            double x = (i % columns) * SPACING + PoolPhysics.CONTACT_DISTANCE / 2 + random.nextDouble() * room;
+            double y = (i / columns) * SPACING + PoolPhysics.CONTACT_DISTANCE / 2 + random.nextDouble() * room;
+            pit.addBall(x, y, PoolGeometry.NUMBERED_BALL_MASS);
+        }
+        return pit;
+    }
+
+    // Strikes every ball in the pit at once, in a random direction at a random speed and with random spin
+    static void stir(PoolPhysics pit, SplittableRandom random) {
+        for (int i = 0 ; i < pit.getBallCount() ; i++) {
+            pit.shoot(i, random.nextDouble(MAX_SPEED), random.nextDouble(2 * Math.PI),
+                    random.nextDouble(-MAX_TIP_OFFSET, MAX_TIP_OFFSET),
+                    random.nextDouble(-MAX_TIP_OFFSET, MAX_TIP_OFFSET));
+        }
+    }
+
+    // The cost of playing out one pit
+    static final class Result {
+        private final int balls;
+        private final long nanos;
+        private final long events;
+        private final long pairs;
+
+        private Result(int balls, long nanos, long events, long pairs) {
+            this.balls = balls;
+            this.nanos = nanos;
+            this.events = events;
+            this.pairs = pairs;
+        }
+
+        int getBalls() {
+            return balls;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+
+        long getEvents() {
+            return events;
+        }
+
+        long getPairs() {
+            return pairs;
+        }
+
+        // Returns the time taken per ball per second of play, in nanoseconds, which stays level as the pit grows if
+        // the physics scales linearly
+        double getNanosPerBallSecond() {
+            return (double) nanos / (balls * SECONDS);
+        }
+
+        double getEventsPerSecond() {
+            return events / (nanos / 1e9);
+        }
+    }
+
+    // Stirs a pit of count balls and plays SECONDS of it frame by frame, returning what that cost
+    static Result run(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        PoolPhysics pit = fill(count, random);
+        stir(pit, random);
+        long events = pit.getEventCount();
+        long pairs = pit.getPairTestCount();
+        long start = System.nanoTime();
+        int frames = (int) Math.round(SECONDS / FRAME_SECONDS);
+        for (int frame = 1 ; frame <= frames ; frame++) {
+            pit.advanceTo(frame * FRAME_SECONDS);
+        }
+        return new Result(count, System.nanoTime() - start, pit.getEventCount() - events,
+                pit.getPairTestCount() - pairs);
+    }
+
+    // Plays out pits of each size in counts, in order, taking the fastest of rounds runs of each to leave out
+    // pauses for garbage collection and compilation
+    static Result[] measure(int[] counts, int rounds) {
+        Result[] results = new Result[counts.length];
+        for (int i = 0 ; i < counts.length ; i++) {
+            for (int round = 0 ; round < rounds ; round++) {
+                Result result = run(counts[i], round);
+                if (results[i] == null || result.getNanosPerBallSecond() < results[i].getNanosPerBallSecond()) {
+                    results[i] = result;
+                }
+            }
+        }
+        return results;
+    }
+
+    // Measures pits from a few hundred to a few thousand balls, or of the sizes given, and reports each to the
+    // console and as comma separated values to a file in PoolProfiler.DIRECTORY. Exits with status 1 if the largest
+    // pit costs more than MAX_COST_RATIO times as much per ball as the smallest, so that it can be run as a check.
+    public static void main(String[] args) throws IOException {
+        int[] counts = {250, 500, 1000, 2000, 4000};
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0 ; i < args.length ; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        // A few runs first let the JIT compile the physics before anything is measured
+        for (int i = 0 ; i < 3 ; i++) {
+            run(counts[counts.length - 1], -1 - i);
+        }
+        Result[] results = measure(counts, 3);
+
+        File file = new File(PoolProfiler.DIRECTORY, "ballpit-" + System.currentTimeMillis() + ".csv");
+        file.getParentFile().mkdirs();
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            System.out.printf("%8s%10s%10s%14s%14s%12s%n", "balls", "ms", "events", "pairs tested", "events/s",
+                    "ns/ball/s");
+            out.println("balls,ms,events,pairs tested,events/s,ns/ball/s");
+            for (Result result : results) {
+                System.out.printf("%8d%10.1f%10d%14d%14.0f%12.0f%n", result.getBalls(), result.getNanos() / 1e6,
+                        result.getEvents(), result.getPairs(), result.getEventsPerSecond(),
+                        result.getNanosPerBallSecond());
+                out.printf("%d,%.3f,%d,%d,%.0f,%.0f%n", result.getBalls(), result.getNanos() / 1e6,
+                        result.getEvents(), result.getPairs(), result.getEventsPerSecond(),
+                        result.getNanosPerBallSecond());
+            }
+        }
+        System.out.println("Wrote results to " + file);
+
+        double ratio = results[results.length - 1].getNanosPerBallSecond() / results[0].getNanosPerBallSecond();
+        System.out.printf("Cost per ball grew %.2fx from %d to %d balls, against a limit of %.2fx%n", ratio,
+                counts[0], counts[counts.length - 1], MAX_COST_RATIO);
+        if (ratio > MAX_COST_RATIO) {
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,450 @@
+import java.util.Arrays;
+
+// This class holds the shapes a ball can run into at the edge of the table: every edge of every bumper, including
+// the angled jaws at the mouths of the pockets, and the pockets themselves. It answers one question: where a ball
+// moving along its path first touches a bumper or drops into a pocket.
+//
+// A ball touches a bumper edge when its centre comes within a ball's radius of it, so each edge is treated as the
+// capsule of points that close to it, and the ball as just its centre moving along a ray. A ball drops into a
+// pocket when its centre crosses the pocket's circle. The shapes are kept in a small bounding volume hierarchy: a
+// binary tree of boxes, each holding the boxes of the shapes below it, built once by splitting the shapes in half
+// along the longer side of their box. A query only visits the boxes its ray passes through, and stops looking past
+// the nearest hit found so far.
+//
+// A sliding ball doesn't move in a straight line, since friction pulls it along its slip rather than its velocity,
+// so it has a second query that follows a path curving under constant acceleration. That visits every box the
+// bounding box of the path overlaps, and finds each hit exactly: the distance from a flat side of a capsule is a
+// quadratic in time, and the squared distance from a corner or pocket a quartic.
+//
+// Everything is in meters and kept in primitive arrays, and queries don't allocate, so each PoolPhysics keeps one
+// of these for its own use.
+final strictfp class PoolCushions {
+
+    // Each leaf of the tree holds at most this many shapes
+    private static final int LEAF_SIZE = 2;
+
+    // The shapes: a bumper edge from (ax, ay) to (bx, by), or a pocket centred at (ax, ay) with radius bx
+    private final boolean[] pocket;
+    private final double[] ax;
+    private final double[] ay;
+    private final double[] bx;
+    private final double[] by;
+
+    // The nodes of the tree, in depth-first order so that a node's first child comes straight after it. A leaf holds
+    // the shapes order[first] to order[first + size - 1], and an inner node has size 0 and its second child at first.
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final int[] first;
+    private final int[] size;
+    private final int[] order;
+    private int nodes;
+
+    private final double radius;
+
+    // Working space for queries
+    private final int[] stack = new int[64];
+    private double hitDistance;
+    private final double[] closest = new double[2];
+    private double hitTime;
+    private final double[] roots = new double[3];
+
+    // Builds the cushions of the table in PoolGeometry, for balls of its size
+    static PoolCushions forStandardTable() {
+        double[][] bumpers = new double[PoolGeometry.BUMPERS.length][];
+        for (int i = 0 ; i < bumpers.length ; i++) {
+            bumpers[i] = new double[PoolGeometry.BUMPERS[i].length];
+            for (int j = 0 ; j < bumpers[i].length ; j++) {
+                bumpers[i][j] = PoolGeometry.BUMPERS[i][j] / PoolGeometry.PIXELS_PER_METER;
+            }
+        }
+        double[] pocketX = new double[PoolGeometry.POCKET_X.length];
+        double[] pocketY = new double[PoolGeometry.POCKET_Y.length];
+        for (int i = 0 ; i < pocketX.length ; i++) {
+            pocketX[i] = PoolGeometry.POCKET_X[i] / PoolGeometry.PIXELS_PER_METER;
+            pocketY[i] = PoolGeometry.POCKET_Y[i] / PoolGeometry.PIXELS_PER_METER;
+        }
+        return new PoolCushions(bumpers, pocketX, pocketY,
+                PoolGeometry.POCKET_RADIUS / PoolGeometry.PIXELS_PER_METER,
+                PoolGeometry.BALL_RADIUS / PoolGeometry.PIXELS_PER_METER);
+    }
+
+    // Builds a plain wall around the rectangle from (0, 0) to (width, height), in meters, with no pockets, for balls of
+    // the given radius. The wall is a single bumper whose edges are the sides of the rectangle.
+    static PoolCushions forBox(double width, double height, double radius) {
+        double[][] bumpers = {{0, 0, width, 0, width, height, 0, height}};
+        return new PoolCushions(bumpers, new double[0], new double[0], 0, radius);
+    }
+
+    // Builds cushions from bumper outlines, each given as x, y pairs going round it, and pockets, for balls of the
+    // given radius
+    PoolCushions(double[][] bumpers, double[] pocketX, double[] pocketY, double pocketRadius, double radius) {
+        this.radius = radius;
+        int shapes = pocketX.length;
+        for (double[] bumper : bumpers) {
+            shapes += bumper.length / 2;
+        }
+        pocket = new boolean[shapes];
+        ax = new double[shapes];
+        ay = new double[shapes];
+        bx = new double[shapes];
+        by = new double[shapes];
+        int shape = 0;
+        for (double[] bumper : bumpers) {
+            int corners = bumper.length / 2;
+            for (int i = 0 ; i < corners ; i++) {
+                int j = (i + 1) % corners;
+                ax[shape] = bumper[2 * i];
+                ay[shape] = bumper[2 * i + 1];
+                bx[shape] = bumper[2 * j];
+                by[shape] = bumper[2 * j + 1];
+                shape++;
+            }
+        }
+        for (int i = 0 ; i < pocketX.length ; i++) {
+            pocket[shape] = true;
+            ax[shape] = pocketX[i];
+            ay[shape] = pocketY[i];
+            bx[shape] = pocketRadius;
+            shape++;
+        }
+
+        // A tree over n shapes with leaves of at least one shape has fewer than 2n nodes
+        minX = new double[2 * shapes];
+        minY = new double[2 * shapes];
+        maxX = new double[2 * shapes];
+        maxY = new double[2 * shapes];
+        first = new int[2 * shapes];
+        size = new int[2 * shapes];
+        order = new int[shapes];
+        for (int i = 0 ; i < shapes ; i++) {
+            order[i] = i;
+        }
+        build(0, shapes);
+    }
+
+    boolean isPocket(int shape) {
+        return pocket[shape];
+    }
+
+    // Returns the distance along the ray of the last hit found by sweep()
+    double getHitDistance() {
+        return hitDistance;
+    }
+
+    // Finds the first shape hit by a ball whose centre starts at (x, y) and moves in the unit direction (ux, uy),
+    // no further than maxDistance. Returns the shape, whose distance along the ray is then given by getHitDistance(),
+    // or -1 if nothing is hit. Edges the ball is already moving away from are never hit, so a ball that has just
+    // bounced off an edge doesn't hit it again.
+    int sweep(double x, double y, double ux, double uy, double maxDistance) {
+        int hit = -1;
+        double best = maxDistance;
+
+        // The reciprocal of each part of the direction, for the slab test against boxes. A part that is zero gives
+        // infinity, which the test handles.
+        double inverseX = 1 / ux;
+        double inverseY = 1 / uy;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!rayHitsBox(node, x, y, inverseX, inverseY, best)) {
+                continue;
+            }
+            if (size[node] == 0) {
+                stack[top++] = first[node];
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = first[node] ; i < first[node] + size[node] ; i++) {
+                int shape = order[i];
+                double distance = pocket[shape]
+                        ? rayEntersCircle(x, y, ux, uy, ax[shape], ay[shape], bx[shape], true)
+                        : rayHitsCapsule(x, y, ux, uy, shape);
+                if (distance <= best) {
+                    best = distance;
+                    hit = shape;
+                }
+            }
+        }
+        hitDistance = best;
+        return hit;
+    }
+
+    // Returns the time along the path of the last hit found by sweepPath()
+    double getHitTime() {
+        return hitTime;
+    }
+
+    // Finds the first shape hit by a ball whose centre starts at (x, y) with velocity (vx, vy) and moves with
+    // constant acceleration (ax, ay), no later than maxTime. Returns the shape, whose time along the path is then
+    // given by getHitTime(), or -1 if nothing is hit. As with sweep(), edges the ball is moving away from aren't hit,
+    // though the path may curve back onto them later.
+    int sweepPath(double x, double y, double vx, double vy, double accelerationX, double accelerationY,
+                  double maxTime) {
+        // The box around the path covers both of its ends and, on each axis, the point where it turns back
+        double endX = x + (vx + 0.5 * accelerationX * maxTime) * maxTime;
+        double endY = y + (vy + 0.5 * accelerationY * maxTime) * maxTime;
+        double left = Math.min(x, endX);
+        double right = Math.max(x, endX);
+        double top = Math.min(y, endY);
+        double bottom = Math.max(y, endY);
+        double turnX = accelerationX == 0 ? -1 : -vx / accelerationX;
+        if (turnX > 0 && turnX < maxTime) {
+            double turn = x + (vx + 0.5 * accelerationX * turnX) * turnX;
+            left = Math.min(left, turn);
+            right = Math.max(right, turn);
+        }
+        double turnY = accelerationY == 0 ? -1 : -vy / accelerationY;
+        if (turnY > 0 && turnY < maxTime) {
+            double turn = y + (vy + 0.5 * accelerationY * turnY) * turnY;
+            top = Math.min(top, turn);
+            bottom = Math.max(bottom, turn);
+        }
+
+        int hit = -1;
+        double best = maxTime;
+        int stackTop = 0;
+        stack[stackTop++] = 0;
+        while (stackTop > 0) {
+            int node = stack[--stackTop];
+            if (minX[node] > right || maxX[node] < left || minY[node] > bottom || maxY[node] < top) {
+                continue;
+            }
+            if (size[node] == 0) {
+                stack[stackTop++] = first[node];
+                stack[stackTop++] = node + 1;
+                continue;
+            }
+            for (int i = first[node] ; i < first[node] + size[node] ; i++) {
+                int shape = order[i];
+                double t = pocket[shape]
+                        ? pathEntersCircle(x, y, vx, vy, accelerationX, accelerationY, ax[shape], ay[shape], bx[shape],
+                                true, best)
+                        : pathHitsCapsule(x, y, vx, vy, accelerationX, accelerationY, shape, best);
+                if (t <= best) {
+                    best = t;
+                    hit = shape;
+                }
+            }
+        }
+        hitTime = best;
+        return hit;
+    }
+
+    // Works out the direction a ball touching a bumper edge at (x, y) is pushed in, which points from the nearest
+    // point of the edge to the ball's centre. The unit normal is written into normal, and the distance from the edge
+    // to the centre is returned.
+    double normal(int shape, double x, double y, double[] normal) {
+        closestPoint(shape, x, y);
+        double dx = x - closest[0];
+        double dy = y - closest[1];
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        normal[0] = dx / distance;
+        normal[1] = dy / distance;
+        return distance;
+    }
+
+    // Writes the point of a bumper edge nearest to (x, y) into closest
+    private void closestPoint(int shape, double x, double y) {
+        double dx = bx[shape] - ax[shape];
+        double dy = by[shape] - ay[shape];
+        double along = ((x - ax[shape]) * dx + (y - ay[shape]) * dy) / (dx * dx + dy * dy);
+        along = Math.max(0, Math.min(1, along));
+        closest[0] = ax[shape] + along * dx;
+        closest[1] = ay[shape] + along * dy;
+    }
+
+    // Returns how far a ray goes before its point comes within radius of a bumper edge, or infinity if it never
+    // does. This is the nearer of where it meets the flat sides of the capsule around the edge and where it meets
+    // the round ends, which are the corners of the bumper.
+    private double rayHitsCapsule(double x, double y, double ux, double uy, int shape) {
+        double dx = bx[shape] - ax[shape];
+        double dy = by[shape] - ay[shape];
+        double length = Math.sqrt(dx * dx + dy * dy);
+        double tx = dx / length;
+        double ty = dy / length;
+
+        // The normal of the edge on the side the ray starts from
+        double nx = -ty;
+        double ny = tx;
+        double side = (x - ax[shape]) * nx + (y - ay[shape]) * ny;
+        if (side < 0) {
+            nx = -nx;
+            ny = -ny;
+            side = -side;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        double approach = ux * nx + uy * ny;
+        if (approach < 0) {
+            // A ball already touching, after rounding, is hit straight away
+            double distance = Math.max(0, (side - radius) / -approach);
+            double along = (x + ux * distance - ax[shape]) * tx + (y + uy * distance - ay[shape]) * ty;
+            if (along >= 0 && along <= length) {
+                best = distance;
+            }
+        }
+        best = Math.min(best, rayEntersCircle(x, y, ux, uy, ax[shape], ay[shape], radius, false));
+        return Math.min(best, rayEntersCircle(x, y, ux, uy, bx[shape], by[shape], radius, false));
+    }
+
+    // Returns how far a ray goes before entering a circle, or infinity if it never does. A ray starting inside the
+    // circle enters it straight away if inside counts, and otherwise only if it is heading further in.
+    private static double rayEntersCircle(double x, double y, double ux, double uy, double cx, double cy,
+                                          double circleRadius, boolean inside) {
+        double fx = x - cx;
+        double fy = y - cy;
+        double b = fx * ux + fy * uy;
+        double c = fx * fx + fy * fy - circleRadius * circleRadius;
+        if (c <= 0) {
+            return inside || b < 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        double discriminant = b * b - c;
+        if (b >= 0 || discriminant < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // This form avoids subtracting nearly equal numbers when the ray only just grazes the circle
+        return c / (-b + Math.sqrt(discriminant));
+    }
+
+    // Returns the first time, no later than maxTime, that a point on a path curving under constant acceleration comes
+    // within radius of a bumper edge, or infinity if it doesn't
+    private double pathHitsCapsule(double x, double y, double vx, double vy, double accelerationX,
+                                   double accelerationY, int shape, double maxTime) {
+        double dx = bx[shape] - ax[shape];
+        double dy = by[shape] - ay[shape];
+        double length = Math.sqrt(dx * dx + dy * dy);
+        double tx = dx / length;
+        double ty = dy / length;
+
+        // The normal of the edge on the side the path starts from
+        double nx = -ty;
+        double ny = tx;
+        double side = (x - ax[shape]) * nx + (y - ay[shape]) * ny;
+        if (side < 0) {
+            nx = -nx;
+            ny = -ny;
+            side = -side;
+        }
+
+        // The distance from the flat side of the capsule is a quadratic in time
+        double approach = vx * nx + vy * ny;
+        double pull = accelerationX * nx + accelerationY * ny;
+        double best = Double.POSITIVE_INFINITY;
+        double t;
+        if (side <= radius && (approach < 0 || (approach == 0 && pull < 0))) {
+            // A ball already touching, after rounding, is hit straight away if it is heading in
+            t = 0;
+        }
+        else {
+            // Otherwise it is hit when it next comes in from outside, even if it is leaving now and curves back
+            t = PoolPolynomials.firstQuarticCrossing(0, 0, 0.5 * pull, approach, side - radius, 0, maxTime, roots);
+        }
+        if (!Double.isNaN(t)) {
+            double along = (x + (vx + 0.5 * accelerationX * t) * t - ax[shape]) * tx +
+                    (y + (vy + 0.5 * accelerationY * t) * t - ay[shape]) * ty;
+            if (along >= 0 && along <= length) {
+                best = t;
+            }
+        }
+        best = Math.min(best, pathEntersCircle(x, y, vx, vy, accelerationX, accelerationY, ax[shape], ay[shape],
+                radius, false, maxTime));
+        return Math.min(best, pathEntersCircle(x, y, vx, vy, accelerationX, accelerationY, bx[shape], by[shape],
+                radius, false, maxTime));
+    }
+
+    // Returns the first time, no later than maxTime, that a point on a path curving under constant acceleration
+    // enters a circle, or infinity if it doesn't. A path starting inside the circle enters it straight away if inside
+    // counts, and otherwise only if it is heading further in.
+    private double pathEntersCircle(double x, double y, double vx, double vy, double accelerationX,
+                                    double accelerationY, double cx, double cy, double circleRadius, boolean inside,
+                                    double maxTime) {
+        // The squared distance from the centre, less the squared radius, is |f + v*t + h*t^2|^2 - r^2
+        double fx = x - cx;
+        double fy = y - cy;
+        double hx = 0.5 * accelerationX;
+        double hy = 0.5 * accelerationY;
+        double c4 = hx * hx + hy * hy;
+        double c3 = 2 * (hx * vx + hy * vy);
+        double c2 = vx * vx + vy * vy + 2 * (hx * fx + hy * fy);
+        double c1 = 2 * (fx * vx + fy * vy);
+        double c0 = fx * fx + fy * fy - circleRadius * circleRadius;
+        if (c0 <= 0 && (inside || c1 < 0)) {
+            return 0;
+        }
+        double t = PoolPolynomials.firstQuarticCrossing(c4, c3, c2, c1, c0, 0, maxTime, roots);
+        return Double.isNaN(t) ? Double.POSITIVE_INFINITY : t;
+    }
+
+    // Returns true if a ray from (x, y) passes through a node's box before going maxDistance
+    private boolean rayHitsBox(int node, double x, double y, double inverseX, double inverseY, double maxDistance) {
+        double tx1 = (minX[node] - x) * inverseX;
+        double tx2 = (maxX[node] - x) * inverseX;
+        double ty1 = (minY[node] - y) * inverseY;
+        double ty2 = (maxY[node] - y) * inverseY;
+
+        // A ray along the edge of a box gives 0 * infinity, which is NaN, and is kept by the comparisons below
+        double enter = Math.max(Math.max(Math.min(tx1, tx2), Math.min(ty1, ty2)), 0);
+        double exit = Math.min(Math.min(Math.max(tx1, tx2), Math.max(ty1, ty2)), maxDistance);
+        return !(enter > exit);
+    }
+
+    // Builds the subtree over shapes order[from] to order[to - 1], returning its root
+    private int build(int from, int to) {
+        int node = nodes++;
+        minX[node] = Double.POSITIVE_INFINITY;
+        minY[node] = Double.POSITIVE_INFINITY;
+        maxX[node] = Double.NEGATIVE_INFINITY;
+        maxY[node] = Double.NEGATIVE_INFINITY;
+        for (int i = from ; i < to ; i++) {
+            int shape = order[i];
+            minX[node] = Math.min(minX[node], boxMinX(shape));
+            minY[node] = Math.min(minY[node], boxMinY(shape));
+            maxX[node] = Math.max(maxX[node], boxMaxX(shape));
+            maxY[node] = Math.max(maxY[node], boxMaxY(shape));
+        }
+        if (to - from <= LEAF_SIZE) {
+            first[node] = from;
+            size[node] = to - from;
+            return node;
+        }
+
+        // Splits the shapes in half by the centres of their boxes, along the longer side of this node's box
+        boolean alongX = maxX[node] - minX[node] >= maxY[node] - minY[node];
+        Integer[] sorted = new Integer[to - from];
+        for (int i = from ; i < to ; i++) {
+            sorted[i - from] = order[i];
+        }
+        Arrays.sort(sorted, (a, b) -> alongX
+                ? Double.compare(boxMinX(a) + boxMaxX(a), boxMinX(b) + boxMaxX(b))
+                : Double.compare(boxMinY(a) + boxMaxY(a), boxMinY(b) + boxMaxY(b)));
+        for (int i = from ; i < to ; i++) {
+            order[i] = sorted[i - from];
+        }
+        int middle = (from + to) / 2;
+        build(from, middle);
+        first[node] = build(middle, to);
+        size[node] = 0;
+        return node;
+    }
+
+    // The box around a shape: around a pocket's circle, or around every point within a ball's radius of an edge
+    private double boxMinX(int shape) {
+        return pocket[shape] ? ax[shape] - bx[shape] : Math.min(ax[shape], bx[shape]) - radius;
+    }
+
+    private double boxMinY(int shape) {
+        return pocket[shape] ? ay[shape] - bx[shape] : Math.min(ay[shape], by[shape]) - radius;
+    }
+
+    private double boxMaxX(int shape) {
+        return pocket[shape] ? ax[shape] + bx[shape] : Math.max(ax[shape], bx[shape]) + radius;
+    }
+
+    private double boxMaxY(int shape) {
+        return pocket[shape] ? ay[shape] + bx[shape] : Math.max(ay[shape], by[shape]) + radius;
+    }
+
+}
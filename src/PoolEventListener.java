@@ -0,0 +1,9 @@
+// Something told about the events of a PoolPhysics simulation as they happen, for example to draw or record a shot.
+// It is called once each event has been handled, so the balls involved are already on their new courses and their
+// positions can be read from the simulation. type is one of the kinds of event in PoolPhysics, and other is the
+// second ball of a collision, or -1 for an event involving only one ball.
+interface PoolEventListener {
+
+    void eventHandled(PoolPhysics physics, int type, int ball, int other);
+
+}
@@ -0,0 +1,147 @@
+import java.util.Arrays;
+
+// This class is the priority queue of events predicted by PoolPhysics. It is a binary heap kept in one primitive
+// array per field of an event, ordered by time and then by the order the events were added, so that adding and
+// removing events never allocates once the arrays have grown large enough. The fields of the event last removed by
+// poll() are read back through the getters.
+class PoolEventQueue {
+
+    private int size;
+    private long added;
+
+    private double[] times = new double[64];
+    private long[] sequences = new long[64];
+    private int[] types = new int[64];
+    private int[] balls = new int[64];
+    private int[] ballVersions = new int[64];
+    private int[] others = new int[64];
+    private int[] otherVersions = new int[64];
+
+    // The event last removed by poll()
+    private double time;
+    private int type;
+    private int ball;
+    private int ballVersion;
+    private int other;
+    private int otherVersion;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Returns the time of the earliest event in the queue
+    double peekTime() {
+        return times[0];
+    }
+
+    void clear() {
+        size = 0;
+        added = 0;
+    }
+
+    void add(double time, int type, int ball, int ballVersion, int other, int otherVersion) {
+        if (size + 1 >= times.length) {
+            grow();
+        }
+        int i = size++;
+        set(i, time, added++, type, ball, ballVersion, other, otherVersion);
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(i, parent)) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    // Removes the earliest event, whose fields can then be read with the getters below
+    void poll() {
+        time = times[0];
+        type = types[0];
+        ball = balls[0];
+        ballVersion = ballVersions[0];
+        other = others[0];
+        otherVersion = otherVersions[0];
+        size--;
+        if (size > 0) {
+            set(0, times[size], sequences[size], types[size], balls[size], ballVersions[size], others[size],
+                    otherVersions[size]);
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(child + 1, child)) {
+                    child++;
+                }
+                if (!before(child, i)) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+    }
+
+    double getTime() {
+        return time;
+    }
+
+    int getType() {
+        return type;
+    }
+
+    int getBall() {
+        return ball;
+    }
+
+    int getBallVersion() {
+        return ballVersion;
+    }
+
+    // Returns the second ball of the event last removed, or -1 if it only involved one ball
+    int getOther() {
+        return other;
+    }
+
+    int getOtherVersion() {
+        return otherVersion;
+    }
+
+    private boolean before(int i, int j) {
+        return times[i] < times[j] || (times[i] == times[j] && sequences[i] < sequences[j]);
+    }
+
+    private void set(int i, double time, long sequence, int type, int ball, int ballVersion, int other,
+                     int otherVersion) {
+        times[i] = time;
+        sequences[i] = sequence;
+        types[i] = type;
+        balls[i] = ball;
+        ballVersions[i] = ballVersion;
+        others[i] = other;
+        otherVersions[i] = otherVersion;
+    }
+
+    private void swap(int i, int j) {
+        set(size, times[i], sequences[i], types[i], balls[i], ballVersions[i], others[i], otherVersions[i]);
+        set(i, times[j], sequences[j], types[j], balls[j], ballVersions[j], others[j], otherVersions[j]);
+        set(j, times[size], sequences[size], types[size], balls[size], ballVersions[size], others[size],
+                otherVersions[size]);
+    }
+
+    private void grow() {
+        // One spare slot is always kept past the end of the heap for swap() to use
+        int capacity = times.length * 2;
+        times = Arrays.copyOf(times, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+        types = Arrays.copyOf(types, capacity);
+        balls = Arrays.copyOf(balls, capacity);
+        ballVersions = Arrays.copyOf(ballVersions, capacity);
+        others = Arrays.copyOf(others, capacity);
+        otherVersions = Arrays.copyOf(otherVersions, capacity);
+    }
+
+}
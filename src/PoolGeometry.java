@@ -0,0 +1,133 @@
+// This class holds the sizes of the table and balls, and where the balls are racked. It is kept apart from
+// PoolTable and PoolBall, which are JavaFX nodes, so that the physics can use it without JavaFX being loaded. Sizes
+// are in pixels of the scene, and positions are measured from its top left corner, as in PoolTable.
+final strictfp class PoolGeometry {
+
+    static final double PIXELS_PER_METER = 200;
+
+    static final double TABLE_WIDTH = 2.62 * PIXELS_PER_METER;
+    static final double TABLE_HEIGHT = 1.5 * PIXELS_PER_METER;
+    static final double PLAYABLE_WIDTH = 2.24 * PIXELS_PER_METER;
+    static final double PLAYABLE_HEIGHT = 1.12 * PIXELS_PER_METER;
+    static final double BUMPER_WIDTH = 0.03 * PIXELS_PER_METER;
+    static final double CUE_LENGTH = 1.4 * PIXELS_PER_METER;
+    static final double POCKET_RADIUS = 0.065 * PIXELS_PER_METER;
+
+    static final double FELT_WIDTH = PLAYABLE_WIDTH + BUMPER_WIDTH * 2;
+    static final double FELT_HEIGHT = PLAYABLE_HEIGHT + BUMPER_WIDTH * 2;
+    static final double TABLE_PADDING = CUE_LENGTH / 2 + (TABLE_WIDTH - FELT_WIDTH) / 2;
+
+    static final double SCENE_WIDTH = TABLE_WIDTH + CUE_LENGTH;
+    static final double SCENE_HEIGHT = TABLE_HEIGHT + CUE_LENGTH;
+
+    static final double BALL_RADIUS = 0.0285 * PIXELS_PER_METER;
+    static final double NUMBERED_BALL_MASS = 0.16;
+    static final double CUE_BALL_MASS = 0.17;
+    static final double MAX_PADDING = TABLE_PADDING + BUMPER_WIDTH + BALL_RADIUS;
+
+    // The corners of each of the six bumpers, as x, y pairs going round the outline: the top and bottom bumpers
+    // either side of the middle pockets, then the left and right. Each bumper has a face along the felt and angled
+    // jaws at the pockets. These arrays are shared and must not be changed.
+    static final double[][] BUMPERS = {
+            {
+                    TABLE_PADDING + BUMPER_WIDTH * 2, TABLE_PADDING,
+                    TABLE_PADDING + BUMPER_WIDTH * 3, TABLE_PADDING + BUMPER_WIDTH,
+                    SCENE_WIDTH / 2 - POCKET_RADIUS, TABLE_PADDING + BUMPER_WIDTH,
+                    SCENE_WIDTH / 2 - POCKET_RADIUS + BUMPER_WIDTH, TABLE_PADDING
+            },
+            {
+                    SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 2), TABLE_PADDING,
+                    SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 3), TABLE_PADDING + BUMPER_WIDTH,
+                    SCENE_WIDTH / 2 + POCKET_RADIUS, TABLE_PADDING + BUMPER_WIDTH,
+                    SCENE_WIDTH / 2 + POCKET_RADIUS - BUMPER_WIDTH, TABLE_PADDING
+            },
+            {
+                    TABLE_PADDING + BUMPER_WIDTH * 2, SCENE_HEIGHT - TABLE_PADDING,
+                    TABLE_PADDING + BUMPER_WIDTH * 3, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
+                    SCENE_WIDTH / 2 - POCKET_RADIUS, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
+                    SCENE_WIDTH / 2 - POCKET_RADIUS + BUMPER_WIDTH, SCENE_HEIGHT - TABLE_PADDING
+            },
+            {
+                    SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 2), SCENE_HEIGHT - TABLE_PADDING,
+                    SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 3), SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
+                    SCENE_WIDTH / 2 + POCKET_RADIUS, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
+                    SCENE_WIDTH / 2 + POCKET_RADIUS - BUMPER_WIDTH, SCENE_HEIGHT - TABLE_PADDING
+            },
+            {
+                    TABLE_PADDING, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 2),
+                    TABLE_PADDING, TABLE_PADDING + BUMPER_WIDTH * 2,
+                    TABLE_PADDING + BUMPER_WIDTH, TABLE_PADDING + BUMPER_WIDTH * 3,
+                    TABLE_PADDING + BUMPER_WIDTH, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 3)
+            },
+            {
+                    SCENE_WIDTH - TABLE_PADDING, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 2),
+                    SCENE_WIDTH - TABLE_PADDING, TABLE_PADDING + BUMPER_WIDTH * 2,
+                    SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH), TABLE_PADDING + BUMPER_WIDTH * 3,
+                    SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH), SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 3)
+            }
+    };
+
+    // The centres of the six pockets: the four corners, then the middle of the top and bottom. A ball drops once its
+    // centre is over a pocket.
+    static final double[] POCKET_X = {
+            TABLE_PADDING, SCENE_WIDTH - TABLE_PADDING, TABLE_PADDING, SCENE_WIDTH - TABLE_PADDING,
+            SCENE_WIDTH / 2, SCENE_WIDTH / 2
+    };
+    static final double[] POCKET_Y = {
+            TABLE_PADDING, TABLE_PADDING, SCENE_HEIGHT - TABLE_PADDING, SCENE_HEIGHT - TABLE_PADDING,
+            TABLE_PADDING + (BUMPER_WIDTH - POCKET_RADIUS),
+            SCENE_HEIGHT - TABLE_PADDING - (BUMPER_WIDTH - POCKET_RADIUS)
+    };
+
+    // The order the numbered balls are racked in, row by row from the apex, with the 8 ball in the middle and a solid
+    // and a stripe in the back corners
+    private static final BallNumber[] RACK = {
+            BallNumber.B1,
+            BallNumber.B11, BallNumber.B5,
+            BallNumber.B2, BallNumber.B8, BallNumber.B10,
+            BallNumber.B9, BallNumber.B7, BallNumber.B14, BallNumber.B4,
+            BallNumber.B6, BallNumber.B15, BallNumber.B13, BallNumber.B3, BallNumber.B12
+    };
+
+    private PoolGeometry() {
+    }
+
+    // Returns the mass of a ball, in kilograms. The cue ball is slightly heavier than the rest.
+    static double mass(BallNumber ballNumber) {
+        return ballNumber == BallNumber.CUE_BALL ? CUE_BALL_MASS : NUMBERED_BALL_MASS;
+    }
+
+    // Returns the x coordinate, in pixels, of where a ball starts the game. The cue ball starts on the head spot, a
+    // quarter of the way along the table, and the rest are racked in a triangle of touching balls with its apex on
+    // the foot spot, three quarters of the way along.
+    static double rackX(BallNumber ballNumber) {
+        if (ballNumber == BallNumber.CUE_BALL) {
+            return TABLE_PADDING + BUMPER_WIDTH + PLAYABLE_WIDTH / 4;
+        }
+        return TABLE_PADDING + BUMPER_WIDTH + PLAYABLE_WIDTH * 3 / 4 + rackRow(ballNumber) * BALL_RADIUS * Math.sqrt(3);
+    }
+
+    // Returns the y coordinate, in pixels, of where a ball starts the game
+    static double rackY(BallNumber ballNumber) {
+        if (ballNumber == BallNumber.CUE_BALL) {
+            return SCENE_HEIGHT / 2;
+        }
+        int row = rackRow(ballNumber);
+        int column = rackSlot(ballNumber) - row * (row + 1) / 2;
+        return SCENE_HEIGHT / 2 + (2 * column - row) * BALL_RADIUS;
+    }
+
+    private static int rackSlot(BallNumber ballNumber) {
+        for (int slot = 0 ; slot < RACK.length ; slot++) {
+            if (RACK[slot] == ballNumber) {
+                return slot;
+            }
+        }
+        throw new IllegalArgumentException(ballNumber + " is not racked");
+    }
+
+    private static int rackRow(BallNumber ballNumber) {
+        return (int) ((Math.sqrt(8 * rackSlot(ballNumber) + 1) - 1) / 2);
+    }
+
+}
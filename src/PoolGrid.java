@@ -0,0 +1,149 @@
+import java.util.Arrays;
+
+// This class is a uniform grid over the table, used to find which balls could possibly touch a given ball without
+// checking every other ball on the table. Each ball is entered into every cell its bounding box overlaps, where the
+// box covers everywhere the ball will be over a short window of time. Balls are identified by their index in
+// PoolPhysics, and everything is held in int arrays so that updating the grid doesn't allocate once it has grown to
+// fit the table.
+class PoolGrid {
+
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+
+    // cells[cell] holds the ids of the balls in each cell, in its first cellCounts[cell] entries
+    private final int[][] cells;
+    private final int[] cellCounts;
+
+    // The range of cells each ball is in, so that it can be taken out again. A ball with firstColumn[id] of -1 isn't
+    // in the grid.
+    private int[] firstColumn = new int[0];
+    private int[] lastColumn = new int[0];
+    private int[] firstRow = new int[0];
+    private int[] lastRow = new int[0];
+
+    // Query results, and the number of the last query each ball was returned by so that no ball is returned twice
+    private int[] results = new int[16];
+    private int[] lastQuery = new int[0];
+    private int queries;
+
+    // Covers the rectangle from (minX, minY) to (maxX, maxY), in meters. Boxes outside it are clamped onto its edge
+    // cells.
+    PoolGrid(double minX, double minY, double maxX, double maxY, double cellSize) {
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+        cells = new int[columns * rows][4];
+        cellCounts = new int[columns * rows];
+    }
+
+    // Puts ball id into every cell overlapping the box from (x0, y0) to (x1, y1), taking it out of any cells it
+    // was in before
+    void insert(int id, double x0, double y0, double x1, double y1) {
+        ensureCapacity(id + 1);
+        remove(id);
+        firstColumn[id] = column(x0);
+        lastColumn[id] = column(x1);
+        firstRow[id] = row(y0);
+        lastRow[id] = row(y1);
+        for (int r = firstRow[id] ; r <= lastRow[id] ; r++) {
+            for (int c = firstColumn[id] ; c <= lastColumn[id] ; c++) {
+                int cell = r * columns + c;
+                if (cellCounts[cell] == cells[cell].length) {
+                    cells[cell] = Arrays.copyOf(cells[cell], cells[cell].length * 2);
+                }
+                cells[cell][cellCounts[cell]++] = id;
+            }
+        }
+    }
+
+    // Takes ball id out of the grid, if it is in it
+    void remove(int id) {
+        if (id >= firstColumn.length || firstColumn[id] < 0) {
+            return;
+        }
+        for (int r = firstRow[id] ; r <= lastRow[id] ; r++) {
+            for (int c = firstColumn[id] ; c <= lastColumn[id] ; c++) {
+                int cell = r * columns + c;
+                int[] ids = cells[cell];
+                for (int i = 0 ; i < cellCounts[cell] ; i++) {
+                    if (ids[i] == id) {
+                        ids[i] = ids[--cellCounts[cell]];
+                        break;
+                    }
+                }
+            }
+        }
+        firstColumn[id] = -1;
+    }
+
+    // Finds every ball in a cell overlapping the box from (x0, y0) to (x1, y1). The ids found are left at the
+    // start of getResults(), in increasing order, and their number is returned. The order never depends on the
+    // order balls were entered in, so a simulation plays out the same on two grids with different histories.
+    int query(double x0, double y0, double x1, double y1) {
+        queries++;
+        int count = 0;
+        int c0 = column(x0);
+        int c1 = column(x1);
+        int r0 = row(y0);
+        int r1 = row(y1);
+        for (int r = r0 ; r <= r1 ; r++) {
+            for (int c = c0 ; c <= c1 ; c++) {
+                int cell = r * columns + c;
+                int[] ids = cells[cell];
+                for (int i = 0 ; i < cellCounts[cell] ; i++) {
+                    int id = ids[i];
+                    if (lastQuery[id] != queries) {
+                        lastQuery[id] = queries;
+                        if (count == results.length) {
+                            results = Arrays.copyOf(results, results.length * 2);
+                        }
+                        results[count++] = id;
+                    }
+                }
+            }
+        }
+
+        // Only a handful of balls are ever found, so an insertion sort is fastest
+        for (int i = 1 ; i < count ; i++) {
+            int id = results[i];
+            int j = i - 1;
+            while (j >= 0 && results[j] > id) {
+                results[j + 1] = results[j];
+                j--;
+            }
+            results[j + 1] = id;
+        }
+        return count;
+    }
+
+    int[] getResults() {
+        return results;
+    }
+
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - minY) / cellSize)));
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > firstColumn.length) {
+            int oldSize = firstColumn.length;
+            int newSize = Math.max(size, oldSize * 2);
+            firstColumn = Arrays.copyOf(firstColumn, newSize);
+            lastColumn = Arrays.copyOf(lastColumn, newSize);
+            firstRow = Arrays.copyOf(firstRow, newSize);
+            lastRow = Arrays.copyOf(lastRow, newSize);
+            lastQuery = Arrays.copyOf(lastQuery, newSize);
+            Arrays.fill(firstColumn, oldSize, newSize, -1);
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// This class counts how often values of each size are recorded, such as how many nanoseconds each frame took, so
+// that their percentiles can be read off later. Values from 0 to 15 each have their own bucket, and above that each
+// power of two is split into 16 buckets, so a percentile is never more than about 6% out however large the values
+// get, and the whole histogram is under a thousand counters. Recording a value is a handful of atomic operations on
+// those counters, with no locks and no allocation, so it can be done from a hot loop on one thread while another
+// thread reads the histogram.
+final class PoolHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+    private final String name;
+    private final String unit;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    // name describes what is recorded, and unit what it is recorded in, both only for printing
+    PoolHistogram(String name, String unit) {
+        this.name = name;
+        this.unit = unit;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getUnit() {
+        return unit;
+    }
+
+    // Records a value, which must not be negative
+    void record(long value) {
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long oldMax = max.get();
+        while (value > oldMax && !max.compareAndSet(oldMax, value)) {
+            oldMax = max.get();
+        }
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    // Returns the value that the given fraction of the values recorded are at or below, rounded up to the top of
+    // its bucket, or 0 if nothing has been recorded. Values recorded while this runs may or may not be counted.
+    long getPercentile(double fraction) {
+        long total = 0;
+        for (int i = 0 ; i < BUCKETS ; i++) {
+            total += buckets.get(i);
+        }
+        long wanted = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0 ; i < BUCKETS ; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, wanted)) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    // Writes one line per bucket that has anything in it, as: name, lowest value, highest value, count
+    void writeBuckets(PrintWriter out) {
+        for (int i = 0 ; i < BUCKETS ; i++) {
+            long n = buckets.get(i);
+            if (n != 0) {
+                out.println(name + "," + lowerBound(i) + "," + upperBound(i) + "," + n);
+            }
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return lowerBound(bucket) + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,287 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.SplittableRandom;
+
+// This class links two copies of the game, each with its own table, so that two players can play each other. Only
+// the shots are sent, never the balls: every shot plays out exactly the same way on both tables, down to the last
+// bit, so the two stay in step by each playing every shot. Players are numbered from 0 as in PoolRules: the host is
+// player 0, shown on screen as player 1, and breaks.
+//
+// Each shot is sent by its player as a few bytes: the direction, speed and cue tip of the shot, where the cue ball
+// was put down if it was in hand, and a hash of the table it was played from. The shot is rounded to what those bytes
+// can hold before either side plays it, so both play the same numbers. Once the balls stop, the other side sends back
+// a hash of where they came to rest. Each side checks every hash it is sent against its own table and stops with an
+// error the moment the two differ, rather than playing on with different games. A shot costs 16 to 20 bytes in all.
+//
+// Everything here blocks until the other side answers, so a window should talk through this on a thread of its own.
+strictfp final class PoolLockstep implements Closeable {
+
+    // The port the host listens on unless told otherwise. Only connections from the same machine are accepted.
+    static final int DEFAULT_PORT = 47_474;
+
+    private static final int CUE_BALL = BallNumber.CUE_BALL.ordinal();
+
+    // How finely each part of a shot is sent: the direction in 2^24 steps of a full turn, the speed in 2^16 steps up
+    // to the fastest shot, where the cue ball is put down in tenths of a millimeter, and the cue tip in 127ths of the
+    // ball's radius either way
+    private static final double DIRECTION_STEPS = 1 << 24;
+    private static final double SPEED_STEPS = (1 << 16) - 1;
+    private static final double PLACEMENT_STEP = 1e-4;
+    private static final double TIP_STEPS = 127;
+
+    private static final int PLACED = 1;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int localPlayer;
+    private long bytesSent;
+    private long bytesReceived;
+
+    private PoolLockstep(Socket socket, int localPlayer) throws IOException {
+        this.socket = socket;
+        this.localPlayer = localPlayer;
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    // Waits on port for the other player to join, and returns the link to them. The host is player 0.
+    static PoolLockstep host(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+            return new PoolLockstep(server.accept(), 0);
+        }
+    }
+
+    // Joins a game hosted on port on this machine, and returns the link to the host. The guest is player 1.
+    static PoolLockstep join(int port) throws IOException {
+        return new PoolLockstep(new Socket(InetAddress.getLoopbackAddress(), port), 1);
+    }
+
+    // Returns the player, 0 or 1, whose shots are played on this side
+    int getLocalPlayer() {
+        return localPlayer;
+    }
+
+    long getBytesSent() {
+        return bytesSent;
+    }
+
+    long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    // A shot as it is sent, already rounded to what the message can hold
+    static final class Shot {
+        private final boolean placed;
+        private final int placeX;
+        private final int placeY;
+        private final int direction;
+        private final int speed;
+        private final int tipX;
+        private final int tipY;
+
+        private Shot(boolean placed, int placeX, int placeY, int direction, int speed, int tipX, int tipY) {
+            this.placed = placed;
+            this.placeX = placeX;
+            this.placeY = placeY;
+            this.direction = direction;
+            this.speed = speed;
+            this.tipX = tipX;
+            this.tipY = tipY;
+        }
+
+        // Returns the shot nearest the one given: struck at speed m/s in direction, in radians clockwise from the
+        // positive x-axis, with the cue tip at (tipX, tipY). If placed, the cue ball is first put down at (x, y), in
+        // meters.
+        static Shot of(boolean placed, double x, double y, double direction, double speed, double tipX,
+                       double tipY) {
+            double turns = direction / (2 * Math.PI);
+            turns -= Math.floor(turns);
+            return new Shot(placed,
+                    placed ? (int) Math.round(x / PLACEMENT_STEP) : 0,
+                    placed ? (int) Math.round(y / PLACEMENT_STEP) : 0,
+                    (int) Math.round(turns * DIRECTION_STEPS) & ((1 << 24) - 1),
+                    (int) Math.round(Math.max(0, Math.min(1, speed / PoolShotSearch.MAX_SPEED)) * SPEED_STEPS),
+                    (int) Math.round(Math.max(-1, Math.min(1, tipX)) * TIP_STEPS),
+                    (int) Math.round(Math.max(-1, Math.min(1, tipY)) * TIP_STEPS));
+        }
+
+        boolean isPlaced() {
+            return placed;
+        }
+
+        double getX() {
+            return placeX * PLACEMENT_STEP;
+        }
+
+        double getY() {
+            return placeY * PLACEMENT_STEP;
+        }
+
+        double getDirection() {
+            return direction / DIRECTION_STEPS * (2 * Math.PI);
+        }
+
+        double getSpeed() {
+            return speed / SPEED_STEPS * PoolShotSearch.MAX_SPEED;
+        }
+
+        double getTipX() {
+            return tipX / TIP_STEPS;
+        }
+
+        double getTipY() {
+            return tipY / TIP_STEPS;
+        }
+
+        // Puts the cue ball down if it was in hand, then strikes it
+        void play(PoolPhysics table) {
+            if (placed) {
+                table.setSunk(CUE_BALL, false);
+                table.place(CUE_BALL, getX(), getY());
+            }
+            table.shoot(CUE_BALL, getSpeed(), getDirection(), getTipX(), getTipY());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.6f rad at %.4f m/s, tip (%.2f, %.2f)%s", getDirection(), getSpeed(), getTipX(),
+                    getTipY(), placed ? String.format(", cue ball at (%.4f, %.4f)", getX(), getY()) : "");
+        }
+    }
+
+    // Returns the hash both sides compare: of every ball on table and of the state of the game by the rules
+    static int hash(PoolPhysics table, long rules) {
+        long hash = table.stateHash() * 31 + rules;
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    // Sends a shot played from a table with the given hash
+    void sendShot(Shot shot, int hash) throws IOException {
+        out.writeByte(shot.placed ? PLACED : 0);
+        if (shot.placed) {
+            out.writeShort(shot.placeX);
+            out.writeShort(shot.placeY);
+        }
+        out.writeByte(shot.direction >>> 16);
+        out.writeShort(shot.direction);
+        out.writeShort(shot.speed);
+        out.writeByte(shot.tipX);
+        out.writeByte(shot.tipY);
+        out.writeInt(hash);
+        out.flush();
+        bytesSent += shot.placed ? 16 : 12;
+    }
+
+    // Waits for the other player's shot, and checks that it was played from a table with the given hash
+    Shot receiveShot(int hash) throws IOException {
+        boolean placed = (in.readUnsignedByte() & PLACED) != 0;
+        int placeX = placed ? in.readUnsignedShort() : 0;
+        int placeY = placed ? in.readUnsignedShort() : 0;
+        int direction = in.readUnsignedByte() << 16 | in.readUnsignedShort();
+        int speed = in.readUnsignedShort();
+        int tipX = in.readByte();
+        int tipY = in.readByte();
+        check(hash, in.readInt(), "before the shot");
+        bytesReceived += placed ? 16 : 12;
+        return new Shot(placed, placeX, placeY, direction, speed, tipX, tipY);
+    }
+
+    // Sends the hash of the table once the balls have stopped after the other player's shot
+    void sendHash(int hash) throws IOException {
+        out.writeInt(hash);
+        out.flush();
+        bytesSent += 4;
+    }
+
+    // Waits for the hash of the other player's table once the balls have stopped after a shot played here, and
+    // checks it against the hash of this side's table
+    void receiveHash(int hash) throws IOException {
+        check(hash, in.readInt(), "after the shot");
+        bytesReceived += 4;
+    }
+
+    private static void check(int local, int remote, String when) {
+        if (local != remote) {
+            throw new IllegalStateException(String.format("The tables are out of step %s: %08x here, %08x there",
+                    when, local, remote));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    // Plays a whole game against another copy of this program, run with "host" or "join" as its first argument, the
+    // port as its second and a seed for the computer's shots as its third. Each side's shots are chosen by the
+    // computer player from a fixed number of tries, so two programs on one machine play a game to the end on their
+    // own, checking that they stay in step at every shot.
+    public static void main(String[] args) throws IOException {
+        boolean hosting = args.length == 0 || args[0].equals("host");
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        SplittableRandom random = new SplittableRandom(args.length > 2 ? Long.parseLong(args[2]) : hosting ? 1 : 2);
+        if (hosting) {
+            System.out.println("Waiting for the other player on port " + port);
+        }
+        try (PoolLockstep link = hosting ? host(port) : join(port)) {
+            System.out.println("Playing as player " + (link.getLocalPlayer() + 1));
+            PoolPhysics table = PoolPhysics.newRack();
+            PoolPhysics scratch = new PoolPhysics();
+            PoolRules.Shot scratchEvents = new PoolRules.Shot();
+            PoolRules.Shot events = new PoolRules.Shot();
+            table.setListener(events);
+            long rules = PoolRules.newGame();
+            int shots = 0;
+            while (shots < PoolSimulation.MAX_SHOTS && PoolRules.getWinner(rules) == PoolRules.NO_WINNER) {
+                int before = hash(table, rules);
+                boolean local = PoolRules.getShooter(rules) == link.getLocalPlayer();
+                Shot shot;
+                if (local) {
+                    boolean placed = table.isSunk(CUE_BALL) || PoolRules.hasBallInHand(rules);
+                    if (placed) {
+                        table.setSunk(CUE_BALL, false);
+                        PoolSimulation.placeCueBall(table);
+                    }
+                    PoolShot chosen = PoolShotSearch.chooseShot(table, rules, scratch, scratchEvents, CUE_BALL,
+                            PoolSimulation.DEFAULT_TRIES, random);
+                    shot = Shot.of(placed, table.getX(CUE_BALL), table.getY(CUE_BALL), chosen.getDirection(),
+                            chosen.getSpeed(), 0, 0);
+                    link.sendShot(shot, before);
+                }
+                else {
+                    shot = link.receiveShot(before);
+                }
+                events.reset();
+                shot.play(table);
+                table.advanceToRest();
+                rules = PoolRules.afterShot(rules, events);
+                int after = hash(table, rules);
+                if (local) {
+                    link.receiveHash(after);
+                }
+                else {
+                    link.sendHash(after);
+                }
+                shots++;
+                System.out.printf("Shot %3d by player %d: %s, table %08x%n", shots, local ? link.getLocalPlayer() + 1
+                        : 2 - link.getLocalPlayer(), shot, after);
+            }
+            int winner = PoolRules.getWinner(rules);
+            System.out.println(winner == PoolRules.NO_WINNER ? "No winner after " + shots + " shots"
+                    : "Player " + (winner + 1) + " wins after " + shots + " shots");
+            System.out.printf("Every table hash matched. Sent %d bytes and received %d, %.1f bytes a shot in all%n",
+                    link.getBytesSent(), link.getBytesReceived(),
+                    (link.getBytesSent() + link.getBytesReceived()) / (double) Math.max(shots, 1));
+        }
+    }
+
+}
@@ -0,0 +1,1065 @@
+import java.util.Arrays;
+
+// This class owns every ball on the table and moves them from event to event. Between events each ball moves with
+// constant acceleration, so its position is known exactly at any time, and the time of its next event can be solved
+// for rather than found by checking for overlaps once a frame. Predicted events wait in a
+// PoolEventQueue ordered by time. Advancing the simulation pops events in order, changes the motion of the balls
+// they involve, and predicts new events for just those balls. Events predicted for a ball whose motion has since
+// changed are recognised by the ball's version number and skipped, rather than searched for and removed. Because
+// events are found exactly, a fast ball can never pass through another ball or a cushion between two frames.
+//
+// Collisions are only solved for between balls that can reach each other soon. Each ball is entered into a PoolGrid
+// with a box covering everywhere it will be over a short window, which ends once it has travelled about one cell, and
+// only balls sharing a cell with it are checked. When the window runs out the ball is entered again and checked
+// against its new neighbours. A collision that comes after the window of either ball is still found in time, by the
+// check made when that window runs out.
+//
+// A ball is either sliding or rolling. Spin is kept as the velocity it gives the point of the ball touching the
+// cloth, so a ball rolls when its spin cancels its velocity there, and slides otherwise. Friction pulls a sliding
+// ball against the slip of that point, which keeps its direction while it shrinks at 7/2 times the rate the velocity
+// changes, so the ball follows a parabola and starts rolling after 2|slip| / (7 * SLIDING_DECELERATION). A rolling
+// ball slows down in a straight line until it stops. A ball struck above or below its centre starts with top or back
+// spin, so it follows through or draws back once it has hit a ball and lost its velocity but not its spin. Side spin,
+// about the vertical axis, wears off at a constant rate and only matters at the cushions, where friction trades it
+// against the velocity along the cushion.
+//
+// Events are:
+//  - a ball hitting another ball, found as the first time the distance between their centres falls to twice the
+//    radius of a ball, which is a root of a quartic. If either ball is touching others, as in the rack, the whole
+//    group of touching balls is pushed apart at once rather than pair by pair.
+//  - a ball hitting a bumper or dropping into a pocket, found by PoolCushions as where the ball's path first meets
+//    one. For a rolling ball that is a ray, turned into a time by solving the quadratic for the distance rolled.
+//  - a sliding ball starting to roll
+//  - a ball rolling to a stop
+//  - a ball's window in the grid running out
+//
+// Balls are numbered in the order they are added, and their state is kept in one array per property rather than in
+// an object per ball, so the loops over every ball run through memory in order. Nothing here uses JavaFX: PoolTable
+// only reads positions from this class to draw them.
+//
+// A shot always plays out exactly the same way, down to the last bit, given the same balls, speed and direction.
+// The simulation is strictfp, only uses functions whose results are fully specified, and measures time from the
+// moment of the shot, so it doesn't matter when, how often, or on which machine it is advanced.
+strictfp class PoolPhysics {
+
+    // Rolling balls slow down at this rate, in m/s^2, from a coefficient of rolling resistance of 0.01 and
+    // acceleration due to gravity of 9.8 m/s^2
+    static final double DECELERATION = 0.098;
+
+    // Sliding balls are pulled against their slip at this rate, in m/s^2, from a coefficient of sliding friction
+    // between ball and cloth of 0.2
+    static final double SLIDING_DECELERATION = 1.96;
+
+    // Side spin, measured as the speed of the ball's equator in m/s, wears off at this rate, in m/s^2, from a
+    // coefficient of spinning friction of 0.044
+    static final double SIDE_SPIN_DECELERATION = 2.5 * 0.044 * 9.8;
+
+    // A ball leaves a cushion with this fraction of the speed it hit it with, across the cushion, and friction
+    // between them acts on any slip along the cushion with this coefficient
+    private static final double CUSHION_RESTITUTION = 0.9;
+    private static final double CUSHION_FRICTION = 0.2;
+
+    // A ball leaving a cushion slower than this, in m/s, has its slip across the cushion taken away, so that
+    // friction can't keep curving it back into the cushion for smaller and smaller bounces without end
+    private static final double CUSHION_SETTLE_SPEED = 0.05;
+
+    // Balls slower than this, in m/s, are at rest. A ball this slow would roll a few billionths of a millimeter.
+    private static final double REST_SPEED = 1e-6;
+
+    // Kinds of event. All but RECHECK, which only does the grid's bookkeeping, are passed to the listener.
+    static final int STOP = 0;
+    static final int CUSHION = 1;
+    static final int POCKET = 2;
+    static final int BALL = 3;
+    static final int RECHECK = 4;
+    static final int ROLL = 5;
+
+    // The limits of where the centre of a ball can be on the standard table, in meters, away from the mouths of the
+    // pockets
+    private static final double MIN_X = PoolGeometry.MAX_PADDING / PoolGeometry.PIXELS_PER_METER;
+    private static final double MAX_X =
+            (PoolGeometry.SCENE_WIDTH - PoolGeometry.MAX_PADDING) / PoolGeometry.PIXELS_PER_METER;
+    private static final double MIN_Y = PoolGeometry.MAX_PADDING / PoolGeometry.PIXELS_PER_METER;
+    private static final double MAX_Y =
+            (PoolGeometry.SCENE_HEIGHT - PoolGeometry.MAX_PADDING) / PoolGeometry.PIXELS_PER_METER;
+
+    // The distance between the centres of two touching balls, in meters
+    static final double CONTACT_DISTANCE = 2 * PoolGeometry.BALL_RADIUS / PoolGeometry.PIXELS_PER_METER;
+
+    // Balls colliding slower than this, in m/s, are pressed together rather than struck, and the friction between
+    // them is taken to scrub off their slip on the cloth so that they both leave rolling. Otherwise a ball with
+    // follow can drive itself into a ball it has just stopped against, over and over through smaller and smaller
+    // collisions, without ever getting past it.
+    private static final double PUSH_SPEED = 0.05;
+
+    // Touching balls that aren't approaching, but are being pushed together by friction, collide once they have sunk
+    // this far into each other, in meters. By then they are approaching fast enough to be told apart from balls
+    // merely resting against each other.
+    private static final double CONTACT_TOLERANCE = 1e-5;
+
+    // When a ball hits another, every ball touching either of them, and every ball touching those, and so on, is
+    // pushed apart with them in the same instant. Balls whose surfaces are closer than CLUSTER_GAP, in meters, count
+    // as touching. At most MAX_CLUSTER balls are solved together, which the rack fits with room to spare, so a
+    // collision takes a bounded time however many balls are heaped together; touching balls left out of a larger
+    // heap are reached by the collisions that follow.
+    private static final double CLUSTER_GAP = 1e-6;
+    private static final int MAX_CLUSTER = 32;
+
+    // Discs that don't overlap can touch at most three times as many times as there are discs
+    private static final int MAX_CONTACTS = 3 * MAX_CLUSTER;
+
+    // A group is pushed apart in at most MAX_ROUNDS rounds, and the impulses of each round are found by going over
+    // its contacts again and again until no contact's impulse changes the velocity between its balls by more than
+    // SOLVER_TOLERANCE, in m/s, or MAX_ITERATIONS passes have been made
+    private static final int MAX_ROUNDS = 64;
+    private static final double SOLVER_TOLERANCE = 1e-12;
+    private static final int MAX_ITERATIONS = 200;
+
+    // The size of a cell of the grid, which is also about how far a ball travels before it is checked against its
+    // neighbours again
+    private static final double CELL_SIZE = 2 * CONTACT_DISTANCE;
+
+    private final PoolEventQueue events = new PoolEventQueue();
+    private final PoolCushions cushions;
+    private final PoolGrid grid;
+
+    // The limits of where the centre of a ball can be on this table, in meters, which only tables of the same size
+    // can be copied between
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private int count;
+
+    // Each ball's motion since the last event that changed it: at startTime, in seconds of simulated time, it was at
+    // (startX, startY) moving with the given velocity and acceleration, and this stretch of motion ends at stopTime,
+    // when the ball stops if it is rolling or starts to roll if it is sliding. stopTime is infinite for a ball at
+    // rest. Positions are measured in meters and velocities in m/s, in the axes of the scene.
+    private double[] startTime = new double[0];
+    private double[] startX = new double[0];
+    private double[] startY = new double[0];
+    private double[] velocityX = new double[0];
+    private double[] velocityY = new double[0];
+    private double[] accelerationX = new double[0];
+    private double[] accelerationY = new double[0];
+    private double[] stopTime = new double[0];
+
+    // Each sliding ball's spin at startTime, as the velocity it gives the point touching the cloth, and each ball's
+    // side spin then, as the speed of its equator, positive for the spin right english gives. A rolling ball's spin is
+    // always minus its velocity, so isn't kept.
+    private boolean[] sliding = new boolean[0];
+    private double[] spinX = new double[0];
+    private double[] spinY = new double[0];
+    private double[] sideSpin = new double[0];
+
+    // Each ball's position at the current time, in meters
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+
+    private double[] mass = new double[0];
+    private boolean[] moving = new boolean[0];
+    private boolean[] sunk = new boolean[0];
+
+    // The number of balls moving, kept up to date so that finding whether any are doesn't go through every ball. A
+    // sunk ball is always at rest.
+    private int movingCount;
+
+    // Incremented whenever a ball's motion changes, so that events predicted before then can be recognised
+    private int[] version = new int[0];
+
+    // Simulated time, in seconds
+    private double time;
+
+    // Working space for the root finder and for bouncing off cushions
+    private final double[] roots = new double[3];
+    private final double[] normal = new double[2];
+
+    // Working space for pushing apart a group of touching balls: each ball's place in the group plus one, or 0 if
+    // it isn't in it; each member's number, position and velocity; and each contact's two members, normal pointing
+    // from the first to the second, the inverse of its effective mass, its impulse in all and in the current round,
+    // and whether it takes part in that round. The collision being handled is always the first contact, between the
+    // first two members.
+    private int[] clusterSlot = new int[0];
+    private final int[] clusterBall = new int[MAX_CLUSTER];
+    private final double[] clusterX = new double[MAX_CLUSTER];
+    private final double[] clusterY = new double[MAX_CLUSTER];
+    private final double[] clusterVX = new double[MAX_CLUSTER];
+    private final double[] clusterVY = new double[MAX_CLUSTER];
+    private final int[] contactA = new int[MAX_CONTACTS];
+    private final int[] contactB = new int[MAX_CONTACTS];
+    private final double[] contactNX = new double[MAX_CONTACTS];
+    private final double[] contactNY = new double[MAX_CONTACTS];
+    private final double[] contactWeight = new double[MAX_CONTACTS];
+    private final double[] contactImpulse = new double[MAX_CONTACTS];
+    private final double[] contactRound = new double[MAX_CONTACTS];
+    private final boolean[] contactActive = new boolean[MAX_CONTACTS];
+    private int clusterSize;
+    private int contactCount;
+
+    // Told about each event once it has been handled, if set
+    private PoolEventListener listener;
+
+    // Running totals of the events taken off the queue, including those found to be out of date, and of the pairs of
+    // balls checked for a collision, for profiling. They are plain counters, since only the thread advancing the
+    // table uses them.
+    private long eventCount;
+    private long pairTestCount;
+
+    // Makes an empty standard table, as drawn by PoolTable
+    PoolPhysics() {
+        this(PoolCushions.forStandardTable(), MIN_X, MIN_Y, MAX_X, MAX_Y);
+    }
+
+    private PoolPhysics(PoolCushions cushions, double minX, double minY, double maxX, double maxY) {
+        this.cushions = cushions;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        grid = new PoolGrid(minX - CONTACT_DISTANCE, minY - CONTACT_DISTANCE, maxX + CONTACT_DISTANCE,
+                maxY + CONTACT_DISTANCE, CELL_SIZE);
+    }
+
+    // Returns an empty table with no pockets, walled in around a floor width by height meters whose top left corner
+    // is at the origin. The cloth, cushions and balls are the same as on the standard table. Tables like this can be
+    // made as large as needed to hold thousands of balls, as PoolBallPit does.
+    static PoolPhysics newPit(double width, double height) {
+        double radius = CONTACT_DISTANCE / 2;
+        return new PoolPhysics(PoolCushions.forBox(width, height, radius), radius, radius, width - radius,
+                height - radius);
+    }
+
+    // Returns a table with every ball racked for the break. Each ball's number is the ordinal of its BallNumber.
+    static PoolPhysics newRack() {
+        PoolPhysics physics = new PoolPhysics();
+        for (BallNumber ballNumber : BallNumber.values()) {
+            physics.addBall(PoolGeometry.rackX(ballNumber) / PoolGeometry.PIXELS_PER_METER,
+                    PoolGeometry.rackY(ballNumber) / PoolGeometry.PIXELS_PER_METER, PoolGeometry.mass(ballNumber));
+        }
+        return physics;
+    }
+
+    // Makes this table a copy of other, which must be the same size and have every ball at rest. The copy's clock
+    // starts at zero. Arrays are reused once they are large enough, so copying into the same table again and again
+    // doesn't allocate.
+    void copyFrom(PoolPhysics other) {
+        if (other.isAnyMoving()) {
+            throw new IllegalStateException("Only a table with every ball at rest can be copied");
+        }
+        if (other.minX != minX || other.minY != minY || other.maxX != maxX || other.maxY != maxY) {
+            throw new IllegalArgumentException("Only a table of the same size can be copied");
+        }
+        if (x.length < other.count) {
+            grow(other.x.length);
+        }
+        for (int i = other.count ; i < count ; i++) {
+            grid.remove(i);
+        }
+        Arrays.fill(moving, 0, count, false);
+        movingCount = 0;
+        count = other.count;
+        time = 0;
+        events.clear();
+        for (int i = 0 ; i < count ; i++) {
+            mass[i] = other.mass[i];
+            sunk[i] = other.sunk[i];
+            setMotion(i, 0, other.x[i], other.y[i], 0, 0, 0, 0, 0);
+            if (sunk[i]) {
+                grid.remove(i);
+            }
+            else {
+                predict(i);
+            }
+        }
+    }
+
+    // Puts a ball of the given mass, in kilograms, down at rest at (x, y), in meters, and returns its number
+    int addBall(double x, double y, double mass) {
+        if (count == this.x.length) {
+            grow(Math.max(16, count * 2));
+        }
+        int ball = count++;
+        this.mass[ball] = mass;
+        setMotion(ball, time, x, y, 0, 0, 0, 0, 0);
+        predict(ball);
+        return ball;
+    }
+
+    void setListener(PoolEventListener listener) {
+        this.listener = listener;
+    }
+
+    int getBallCount() {
+        return count;
+    }
+
+    double getTime() {
+        return time;
+    }
+
+    long getEventCount() {
+        return eventCount;
+    }
+
+    long getPairTestCount() {
+        return pairTestCount;
+    }
+
+    // Returns the time of the next event predicted, or infinity if there is none. Advancing to this time handles
+    // one event at a time, though the event may turn out to be out of date and change nothing.
+    double getNextEventTime() {
+        return events.isEmpty() ? Double.POSITIVE_INFINITY : events.peekTime();
+    }
+
+    // Returns the x coordinate of a ball at the current time, in meters
+    double getX(int ball) {
+        return x[ball];
+    }
+
+    double getY(int ball) {
+        return y[ball];
+    }
+
+    boolean isMoving(int ball) {
+        return moving[ball];
+    }
+
+    // Fills motion with a ball's current stretch of motion: its start time, start x and y, velocity x and y,
+    // acceleration x and y, and stop time, as kept in the fields of those names. Passed to position(), these give where
+    // the ball is at any time during the stretch, exactly as the simulation has it.
+    void getMotion(int ball, double[] motion) {
+        motion[0] = startTime[ball];
+        motion[1] = startX[ball];
+        motion[2] = startY[ball];
+        motion[3] = velocityX[ball];
+        motion[4] = velocityY[ball];
+        motion[5] = accelerationX[ball];
+        motion[6] = accelerationY[ball];
+        motion[7] = stopTime[ball];
+    }
+
+    // Returns one coordinate of a ball elapsed seconds into a stretch of motion that started at start with the given
+    // velocity and acceleration along that axis, elapsed being cut off at the stop time
+    static double position(double start, double velocity, double acceleration, double elapsed) {
+        return start + (velocity + 0.5 * acceleration * elapsed) * elapsed;
+    }
+
+    boolean isSunk(int ball) {
+        return sunk[ball];
+    }
+
+    // Takes a ball off the table, or puts a sunk ball back on at rest where it was sunk
+    void setSunk(int ball, boolean sunk) {
+        this.sunk[ball] = sunk;
+        setMotion(ball, time, x[ball], y[ball], 0, 0, 0, 0, 0);
+        if (sunk) {
+            grid.remove(ball);
+        }
+        else {
+            predict(ball);
+        }
+    }
+
+    // Returns true if any ball on the table is moving
+    boolean isAnyMoving() {
+        return movingCount > 0;
+    }
+
+    // Strikes a ball through its centre so that it sets off at speed m/s in direction, measured in radians clockwise
+    // from the positive x-axis of the scene, sliding without spin
+    void shoot(int ball, double speed, double direction) {
+        shoot(ball, speed, direction, 0, 0);
+    }
+
+    // Strikes a ball so that it sets off at speed m/s in direction, with the cue tip tipX to the right of the ball's
+    // centre and tipY above it, as the player looks along the cue, in fractions of the ball's radius. A level cue
+    // gives spin in proportion to how far off centre it strikes, so a ball struck 2/5 of its radius above centre
+    // rolls from the start. If every ball is at rest, the clock is first wound back to zero, so that the shot plays
+    // out the same however long the table had been running.
+    void shoot(int ball, double speed, double direction, double tipX, double tipY) {
+        if (!isAnyMoving()) {
+            events.clear();
+            time = 0;
+            for (int i = 0 ; i < count ; i++) {
+                setMotion(i, 0, x[i], y[i], 0, 0, 0, 0, 0);
+            }
+        }
+        double ux = StrictMath.cos(direction);
+        double uy = StrictMath.sin(direction);
+        double roll = -2.5 * tipY * speed;
+        setMotion(ball, time, xAt(ball, time), yAt(ball, time), speed * ux, speed * uy, roll * ux, roll * uy,
+                2.5 * tipX * speed);
+        predict(ball);
+    }
+
+    // Runs the simulation straight to the moment every ball has come to rest, without stopping anywhere in
+    // between. This is as fast as the events can be handled, far faster than real time.
+    void advanceToRest() {
+        while (isAnyMoving() && !events.isEmpty()) {
+            handleEvents(events.peekTime());
+        }
+        updatePositions();
+    }
+
+    // Returns a hash of the position of every ball and whether it is sunk, which two copies of the same game can
+    // compare to check that they haven't drifted apart
+    long stateHash() {
+        long hash = count;
+        for (int i = 0 ; i < count ; i++) {
+            hash = hash * 31 + Double.doubleToLongBits(x[i]);
+            hash = hash * 31 + Double.doubleToLongBits(y[i]);
+            hash = hash * 31 + (sunk[i] ? 1 : 0);
+        }
+        return hash;
+    }
+
+    // Puts a ball down at rest at (x, y), in meters
+    void place(int ball, double x, double y) {
+        setMotion(ball, time, x, y, 0, 0, 0, 0, 0);
+        predict(ball);
+    }
+
+    // Returns true if (x, y), in meters, is within the limits of where the centre of a ball can be on this table
+    boolean isOnCloth(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    // Returns true if a ball could be put down at (x, y), in meters, without overlapping any other ball on the table
+    boolean isFree(int ball, double x, double y) {
+        for (int other = 0 ; other < count ; other++) {
+            if (other != ball && !sunk[other] &&
+                    distance(this.x[other] - x, this.y[other] - y) < CONTACT_DISTANCE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Handles every event up to the given time, then works out where each ball is at that time
+    void advanceTo(double target) {
+        handleEvents(target);
+        time = Math.max(time, target);
+        updatePositions();
+    }
+
+    // Handles every event up to the given time, leaving the clock at the last one
+    private void handleEvents(double target) {
+        while (!events.isEmpty() && events.peekTime() <= target) {
+            events.poll();
+            eventCount++;
+            int ball = events.getBall();
+            int other = events.getOther();
+            if (version[ball] == events.getBallVersion() && (other < 0 || version[other] == events.getOtherVersion())) {
+                time = events.getTime();
+                handle(events.getType(), ball, other);
+            }
+        }
+    }
+
+    // Works out where each ball is at the current time
+    private void updatePositions() {
+        for (int i = 0 ; i < count ; i++) {
+            double t = elapsed(i, time);
+            x[i] = position(startX[i], velocityX[i], accelerationX[i], t);
+            y[i] = position(startY[i], velocityY[i], accelerationY[i], t);
+        }
+    }
+
+    private void handle(int type, int ball, int other) {
+        double x = xAt(ball, time);
+        double y = yAt(ball, time);
+        switch (type) {
+            case STOP:
+                setMotion(ball, time, x, y, 0, 0, 0, 0, 0);
+                predict(ball);
+                break;
+            case ROLL:
+                double vx = velocityXAt(ball, time);
+                double vy = velocityYAt(ball, time);
+                setMotion(ball, time, x, y, vx, vy, -vx, -vy, sideSpinAt(ball, time));
+                predict(ball);
+                break;
+            case CUSHION:
+                bounce(ball, cushionOf(other), x, y);
+                break;
+            case POCKET:
+                setMotion(ball, time, x, y, 0, 0, 0, 0, 0);
+                setSunk(ball, true);
+                break;
+            case BALL:
+                if (!collide(ball, other)) {
+                    return;
+                }
+                break;
+            case RECHECK:
+                predictCollisions(ball);
+                return;
+        }
+        if (listener != null) {
+            listener.eventHandled(this, type, ball, type == BALL ? other : -1);
+
+            // Every other pair of balls pushed apart along with the two that collided is passed on as a collision of
+            // its own, so that the listener hears about every ball whose motion changed
+            for (int k = 1 ; type == BALL && k < contactCount ; k++) {
+                if (contactImpulse[k] > 0) {
+                    listener.eventHandled(this, BALL, clusterBall[contactA[k]], clusterBall[contactB[k]]);
+                }
+            }
+        }
+    }
+
+    // Starts a new stretch of motion for a ball from (x, y) at time t, which is always the current time, with the
+    // given velocity, spin and side spin, as kept in the fields of those names
+    private void setMotion(int ball, double t, double x, double y, double vx, double vy, double wx, double wy,
+                           double side) {
+        // A ball whose point on the cloth is barely slipping is rolling
+        double slipX = vx + wx;
+        double slipY = vy + wy;
+        double slip = distance(slipX, slipY);
+        if (slip < REST_SPEED) {
+            slip = 0;
+
+            // A rolling ball slower than REST_SPEED is at rest. Otherwise balls pressed together can pass a vanishing
+            // velocity back and forth forever, through collisions so close together that time barely moves on.
+            if (distance(vx, vy) < REST_SPEED) {
+                vx = 0;
+                vy = 0;
+            }
+        }
+        startTime[ball] = t;
+        startX[ball] = x;
+        startY[ball] = y;
+        this.x[ball] = x;
+        this.y[ball] = y;
+        velocityX[ball] = vx;
+        velocityY[ball] = vy;
+        double speed = distance(vx, vy);
+        sliding[ball] = slip != 0;
+        movingCount -= moving[ball] ? 1 : 0;
+        moving[ball] = sliding[ball] || speed != 0;
+        movingCount += moving[ball] ? 1 : 0;
+        if (sliding[ball]) {
+            accelerationX[ball] = -SLIDING_DECELERATION * slipX / slip;
+            accelerationY[ball] = -SLIDING_DECELERATION * slipY / slip;
+            stopTime[ball] = t + 2 * slip / (7 * SLIDING_DECELERATION);
+        }
+        else {
+            accelerationX[ball] = moving[ball] ? -DECELERATION * vx / speed : 0;
+            accelerationY[ball] = moving[ball] ? -DECELERATION * vy / speed : 0;
+            stopTime[ball] = moving[ball] ? t + speed / DECELERATION : Double.POSITIVE_INFINITY;
+        }
+        spinX[ball] = sliding[ball] ? wx : 0;
+        spinY[ball] = sliding[ball] ? wy : 0;
+
+        // A ball that has stopped is taken to have stopped spinning too
+        sideSpin[ball] = moving[ball] ? side : 0;
+        version[ball]++;
+    }
+
+    // Returns how long a ball has been on its current stretch of motion at time t, stopping the clock once the ball
+    // has stopped
+    private double elapsed(int ball, double t) {
+        return Math.min(t, stopTime[ball]) - startTime[ball];
+    }
+
+    private double xAt(int ball, double t) {
+        return position(startX[ball], velocityX[ball], accelerationX[ball], elapsed(ball, t));
+    }
+
+    private double yAt(int ball, double t) {
+        return position(startY[ball], velocityY[ball], accelerationY[ball], elapsed(ball, t));
+    }
+
+    private double velocityXAt(int ball, double t) {
+        return velocityX[ball] + accelerationX[ball] * elapsed(ball, t);
+    }
+
+    private double velocityYAt(int ball, double t) {
+        return velocityY[ball] + accelerationY[ball] * elapsed(ball, t);
+    }
+
+    // Friction changes a sliding ball's spin 5/2 times as fast as its velocity, in the same direction
+    private double spinXAt(int ball, double t) {
+        return sliding[ball] ? spinX[ball] + 2.5 * accelerationX[ball] * elapsed(ball, t) : -velocityXAt(ball, t);
+    }
+
+    private double spinYAt(int ball, double t) {
+        return sliding[ball] ? spinY[ball] + 2.5 * accelerationY[ball] * elapsed(ball, t) : -velocityYAt(ball, t);
+    }
+
+    private double sideSpinAt(int ball, double t) {
+        double side = sideSpin[ball];
+        return Math.copySign(Math.max(0, Math.abs(side) - SIDE_SPIN_DECELERATION * (t - startTime[ball])), side);
+    }
+
+    // Sends two touching balls apart, in a perfectly elastic collision. Only the parts of their velocities along the
+    // line between their centres change, by an impulse that conserves both momentum and energy. The balls are taken
+    // to be frictionless, so their spin is left as it was and they slide away until it catches up with their new
+    // velocities. Returns false if the balls turn out not to be approaching each other, and so don't collide. If
+    // either ball is touching another, the whole group of touching balls is pushed apart by collideCluster instead.
+    private boolean collide(int a, int b) {
+        double ax = xAt(a, time);
+        double ay = yAt(a, time);
+        double bx = xAt(b, time);
+        double by = yAt(b, time);
+        double distance = distance(bx - ax, by - ay);
+        double nx = (bx - ax) / distance;
+        double ny = (by - ay) / distance;
+        double avx = velocityXAt(a, time);
+        double avy = velocityYAt(a, time);
+        double bvx = velocityXAt(b, time);
+        double bvy = velocityYAt(b, time);
+        double approach = (avx - bvx) * nx + (avy - bvy) * ny;
+
+        // Balls only just touching may turn out, after rounding, not to be approaching after all. Their motion is left
+        // alone, and so are their predicted events, which are still right. Balls approaching so slowly that the
+        // impulse would be lost to rounding, and the same collision found again and again, are pushed apart as if
+        // they met at REST_SPEED, or else they would go on sinking into each other with nothing left to stop them.
+        if (approach <= 0) {
+            return false;
+        }
+        if (gatherCluster(a, b) > 2) {
+            collideCluster(approach);
+            return true;
+        }
+        double impulse = 2 * Math.max(approach, REST_SPEED) * mass[a] * mass[b] / (mass[a] + mass[b]);
+        contactImpulse[0] = impulse;
+        double changeA = impulse / mass[a];
+        double changeB = impulse / mass[b];
+        double awx = spinXAt(a, time);
+        double awy = spinYAt(a, time);
+        double aSide = sideSpinAt(a, time);
+        double bwx = spinXAt(b, time);
+        double bwy = spinYAt(b, time);
+        double bSide = sideSpinAt(b, time);
+        avx -= changeA * nx;
+        avy -= changeA * ny;
+        bvx += changeB * nx;
+        bvy += changeB * ny;
+        if (approach < PUSH_SPEED) {
+            awx = -avx;
+            awy = -avy;
+            bwx = -bvx;
+            bwy = -bvy;
+        }
+        setMotion(a, time, ax, ay, avx, avy, awx, awy, aSide);
+        setMotion(b, time, bx, by, bvx, bvy, bwx, bwy, bSide);
+        predict(a);
+        predict(b);
+        return true;
+    }
+
+    // Gathers a and b, and every ball touching them directly or through others, into the cluster arrays, along with
+    // every contact between them, and returns how many balls there are. a and b are always the first two members.
+    private int gatherCluster(int a, int b) {
+        clusterSize = 0;
+        contactCount = 0;
+        addToCluster(a);
+        addToCluster(b);
+        addContact(0, 1);
+        double reach = CONTACT_DISTANCE + CLUSTER_GAP;
+        for (int member = 0 ; member < clusterSize ; member++) {
+            double mx = clusterX[member];
+            double my = clusterY[member];
+            int found = grid.query(mx - reach, my - reach, mx + reach, my + reach);
+            int[] neighbours = grid.getResults();
+            for (int i = 0 ; i < found ; i++) {
+                int other = neighbours[i];
+                int slot = clusterSlot[other] - 1;
+
+                // Contacts with members already gone over were added from the other side, and the contact between
+                // the first two members was added first of all
+                if (other == clusterBall[member] || sunk[other] || (slot >= 0 && slot <= member) ||
+                        (member == 0 && slot == 1)) {
+                    continue;
+                }
+                pairTestCount++;
+                if (distance(xAt(other, time) - mx, yAt(other, time) - my) > reach) {
+                    continue;
+                }
+                if (slot < 0) {
+                    if (clusterSize == MAX_CLUSTER) {
+                        continue;
+                    }
+                    slot = addToCluster(other);
+                }
+                if (contactCount < MAX_CONTACTS) {
+                    addContact(member, slot);
+                }
+            }
+        }
+        for (int member = 0 ; member < clusterSize ; member++) {
+            clusterSlot[clusterBall[member]] = 0;
+        }
+        return clusterSize;
+    }
+
+    // Adds a ball to the cluster as it is now, and returns its place there
+    private int addToCluster(int ball) {
+        int member = clusterSize++;
+        clusterSlot[ball] = member + 1;
+        clusterBall[member] = ball;
+        clusterX[member] = xAt(ball, time);
+        clusterY[member] = yAt(ball, time);
+        clusterVX[member] = velocityXAt(ball, time);
+        clusterVY[member] = velocityYAt(ball, time);
+        return member;
+    }
+
+    private void addContact(int first, int second) {
+        int contact = contactCount++;
+        double dx = clusterX[second] - clusterX[first];
+        double dy = clusterY[second] - clusterY[first];
+        double distance = distance(dx, dy);
+        contactA[contact] = first;
+        contactB[contact] = second;
+        contactNX[contact] = dx / distance;
+        contactNY[contact] = dy / distance;
+        contactWeight[contact] = 1 / mass[clusterBall[first]] + 1 / mass[clusterBall[second]];
+        contactImpulse[contact] = 0;
+    }
+
+    // Pushes apart the cluster gathered for a collision whose two balls approach each other at approach m/s. The
+    // contacts are resolved in rounds, as the push of the collision travels through the group: each round takes every
+    // contact that is approaching at once, and only those, and pushes them all apart together, which may set other
+    // contacts approaching for the next round. A ball struck square on the end of a line of balls stops dead and the
+    // last one leaves, and the cue ball striking the rack stops against the apex ball as it would against that ball
+    // alone, which then pushes into the two behind it together.
+    //
+    // Within a round the balls are first pressed together as far as they go: the impulses are found that leave none
+    // of the round's contacts approaching while pushing only on those that end up at rest, by going over the contacts
+    // one by one, each time pushing just hard enough to stop that one approaching, but never pulling, until none
+    // changes. That answer doesn't depend on the order the contacts are gone over in, so a rack struck square on
+    // breaks symmetrically. Then every impulse is applied a second time as the balls spring back apart, which
+    // conserves energy as well as momentum, as a perfectly elastic collision does. The balls are frictionless, as in
+    // collide(), and any whose velocity changes has its motion started again.
+    private void collideCluster(double approach) {
+        for (int k = 0 ; k < contactCount ; k++) {
+            contactActive[k] = k == 0;
+        }
+        for (int round = 0 ; round < MAX_ROUNDS ; round++) {
+            for (int k = 0 ; k < contactCount ; k++) {
+                contactRound[k] = 0;
+            }
+            for (int iteration = 0 ; iteration < MAX_ITERATIONS ; iteration++) {
+                double largest = 0;
+                for (int k = 0 ; k < contactCount ; k++) {
+                    if (contactActive[k]) {
+                        largest = Math.max(largest, push(k, contactRound[k] + approach(k) / contactWeight[k]));
+                    }
+                }
+                if (largest <= SOLVER_TOLERANCE) {
+                    break;
+                }
+            }
+
+            // As in collide(), the collision's own balls are sent apart at no less than REST_SPEED, so that they
+            // can't go on sinking into each other
+            for (int k = 0 ; k < contactCount ; k++) {
+                if (contactActive[k]) {
+                    double minimum = round == 0 && k == 0 ? 2 * REST_SPEED / contactWeight[0] : 0;
+                    push(k, Math.max(2 * contactRound[k], minimum));
+                }
+            }
+
+            boolean anyActive = false;
+            for (int k = 0 ; k < contactCount ; k++) {
+                contactActive[k] = approach(k) > REST_SPEED;
+                anyActive |= contactActive[k];
+            }
+            if (!anyActive) {
+                break;
+            }
+        }
+
+        // Every motion is changed before any new events are predicted, since each prediction reads the others
+        boolean pressed = approach < PUSH_SPEED;
+        for (int member = 0 ; member < clusterSize ; member++) {
+            if (isPushed(member)) {
+                int ball = clusterBall[member];
+                double vx = clusterVX[member];
+                double vy = clusterVY[member];
+                setMotion(ball, time, clusterX[member], clusterY[member], vx, vy, pressed ? -vx : spinXAt(ball, time),
+                        pressed ? -vy : spinYAt(ball, time), sideSpinAt(ball, time));
+            }
+        }
+        for (int member = 0 ; member < clusterSize ; member++) {
+            if (isPushed(member)) {
+                predict(clusterBall[member]);
+            }
+        }
+    }
+
+    // Returns the speed at which a contact's two members approach each other
+    private double approach(int contact) {
+        int a = contactA[contact];
+        int b = contactB[contact];
+        return (clusterVX[a] - clusterVX[b]) * contactNX[contact] + (clusterVY[a] - clusterVY[b]) * contactNY[contact];
+    }
+
+    // Changes the impulse a contact has given in this round to impulse, or to zero if that is negative, applying the
+    // difference to the velocities of its members, and returns how much the difference changes the velocity between
+    // them
+    private double push(int contact, double impulse) {
+        impulse = Math.max(0, impulse);
+        double change = impulse - contactRound[contact];
+        contactRound[contact] = impulse;
+        contactImpulse[contact] += change;
+        int a = contactA[contact];
+        int b = contactB[contact];
+        double changeA = change / mass[clusterBall[a]];
+        double changeB = change / mass[clusterBall[b]];
+        clusterVX[a] -= changeA * contactNX[contact];
+        clusterVY[a] -= changeA * contactNY[contact];
+        clusterVX[b] += changeB * contactNX[contact];
+        clusterVY[b] += changeB * contactNY[contact];
+        return Math.abs(change) * contactWeight[contact];
+    }
+
+    // Returns true if any contact of a member pushed on it. The collision's own balls are always pushed.
+    private boolean isPushed(int member) {
+        for (int k = 0 ; k < contactCount ; k++) {
+            if (contactImpulse[k] > 0 && (contactA[k] == member || contactB[k] == member)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Bounces a ball at (x, y) off a bumper edge, reversing the part of its velocity along the normal of the edge at
+    // the point it touches, which for a corner of the bumper points straight out from the corner, and losing some of
+    // its speed. Friction at the cushion acts on the slip of the ball's surface along it, which comes from both the
+    // ball's velocity and its side spin, and works to stop that slip by changing both: a sphere's velocity changes by
+    // 2/7 of the slip stopped and its side spin by 5/7, but friction can only do as much as the impulse of the bounce
+    // allows. Spin about the ball's other axes is left as it was.
+    private void bounce(int ball, int cushion, double x, double y) {
+        double distance = cushions.normal(cushion, x, y, normal);
+        double nx = normal[0];
+        double ny = normal[1];
+        double vx = velocityXAt(ball, time);
+        double vy = velocityYAt(ball, time);
+        double wx = spinXAt(ball, time);
+        double wy = spinYAt(ball, time);
+        double side = sideSpinAt(ball, time);
+        double along = vx * nx + vy * ny;
+        double rebound = -(1 + CUSHION_RESTITUTION) * Math.min(0, along);
+
+        // The ball's surface touching the cushion moves along it, in the direction (tx, ty), with its velocity along
+        // the cushion plus its side spin
+        double tx = -ny;
+        double ty = nx;
+        double slip = vx * tx + vy * ty + side;
+        double friction = Math.max(-CUSHION_FRICTION * rebound, Math.min(CUSHION_FRICTION * rebound, 2.0 / 7 * slip));
+        vx += rebound * nx - friction * tx;
+        vy += rebound * ny - friction * ty;
+        side -= 2.5 * friction;
+        if (along + rebound < CUSHION_SETTLE_SPEED) {
+            double across = (vx + wx) * nx + (vy + wy) * ny;
+            wx -= across * nx;
+            wy -= across * ny;
+        }
+
+        // Pins the ball to the cushion so that rounding can't carry it through
+        double push = Math.max(0, CONTACT_DISTANCE / 2 - distance);
+        setMotion(ball, time, x + push * nx, y + push * ny, vx, vy, wx, wy, side);
+        predict(ball);
+    }
+
+    // Schedules the next events for a ball whose motion has just changed
+    private void predict(int ball) {
+        if (sunk[ball]) {
+            return;
+        }
+        if (moving[ball]) {
+            predictEdge(ball);
+        }
+        predictCollisions(ball);
+    }
+
+    // Enters the ball into the grid for its next window, and schedules its collisions with the balls it could
+    // reach during it
+    private void predictCollisions(int ball) {
+        double x0 = xAt(ball, time);
+        double y0 = yAt(ball, time);
+        double windowEnd = stopTime[ball];
+        if (moving[ball]) {
+            // A rolling ball only slows down, but a sliding ball can speed up, so the window is the time it would take
+            // to travel one cell if it sped up as fast as friction can make it
+            double speed = distance(velocityXAt(ball, time), velocityYAt(ball, time));
+            double window = sliding[ball]
+                    ? 2 * CELL_SIZE / (speed + Math.sqrt(speed * speed + 2 * SLIDING_DECELERATION * CELL_SIZE))
+                    : CELL_SIZE / speed;
+            if (time + window < windowEnd) {
+                windowEnd = time + window;
+                schedule(windowEnd, RECHECK, ball, -1);
+            }
+        }
+
+        // A rolling ball moves in a straight line, so its box only needs to cover both ends of the window. A sliding
+        // ball's path curves, and can bulge out past both ends where it turns back along either axis.
+        double x1 = moving[ball] ? xAt(ball, windowEnd) : x0;
+        double y1 = moving[ball] ? yAt(ball, windowEnd) : y0;
+        double radius = CONTACT_DISTANCE / 2;
+        double left = Math.min(x0, x1);
+        double top = Math.min(y0, y1);
+        double right = Math.max(x0, x1);
+        double bottom = Math.max(y0, y1);
+        if (sliding[ball]) {
+            double turnX = accelerationX[ball] == 0 ? time : startTime[ball] - velocityX[ball] / accelerationX[ball];
+            if (turnX > time && turnX < windowEnd) {
+                left = Math.min(left, xAt(ball, turnX));
+                right = Math.max(right, xAt(ball, turnX));
+            }
+            double turnY = accelerationY[ball] == 0 ? time : startTime[ball] - velocityY[ball] / accelerationY[ball];
+            if (turnY > time && turnY < windowEnd) {
+                top = Math.min(top, yAt(ball, turnY));
+                bottom = Math.max(bottom, yAt(ball, turnY));
+            }
+        }
+        left -= radius;
+        top -= radius;
+        right += radius;
+        bottom += radius;
+        grid.insert(ball, left, top, right, bottom);
+
+        int found = grid.query(left, top, right, bottom);
+        int[] neighbours = grid.getResults();
+        for (int i = 0 ; i < found ; i++) {
+            int other = neighbours[i];
+            if (other != ball && !sunk[other]) {
+                pairTestCount++;
+                predictCollision(ball, other);
+            }
+        }
+    }
+
+    // Schedules the ball's next cushion hit or pocket, or the time it stops or starts to roll if that comes first. A
+    // rolling ball moves in a straight line until its next event, so this is found by sweeping a ray along its path as
+    // far as it will roll. The ball covers a distance s in time t = 2s / (v + sqrt(v^2 - 2as)), from s = vt - at^2/2.
+    // A sliding ball's path is followed along its curve until it starts to roll.
+    private void predictEdge(int ball) {
+        double vx = velocityXAt(ball, time);
+        double vy = velocityYAt(ball, time);
+        if (sliding[ball]) {
+            int hit = cushions.sweepPath(xAt(ball, time), yAt(ball, time), vx, vy, accelerationX[ball],
+                    accelerationY[ball], stopTime[ball] - time);
+            if (hit < 0) {
+                schedule(stopTime[ball], ROLL, ball, -1);
+            }
+            else {
+                schedule(Math.min(time + cushions.getHitTime(), stopTime[ball]),
+                        cushions.isPocket(hit) ? POCKET : CUSHION, ball, -2 - hit);
+            }
+            return;
+        }
+        double speed = distance(vx, vy);
+        int hit = cushions.sweep(xAt(ball, time), yAt(ball, time), vx / speed, vy / speed, reach(ball));
+        if (hit < 0) {
+            schedule(stopTime[ball], STOP, ball, -1);
+            return;
+        }
+        double s = cushions.getHitDistance();
+        double t = 2 * s / (speed + Math.sqrt(Math.max(0, speed * speed - 2 * DECELERATION * s)));
+        schedule(Math.min(time + t, stopTime[ball]), cushions.isPocket(hit) ? POCKET : CUSHION, ball, -2 - hit);
+    }
+
+    // Schedules the first time two balls touch while approaching each other, if they do before either stops
+    private void predictCollision(int a, int b) {
+        if (!moving[a] && !moving[b]) {
+            return;
+        }
+        double horizon = Math.min(stopTime[a], stopTime[b]) - time;
+        double dx = xAt(b, time) - xAt(a, time);
+        double dy = yAt(b, time) - yAt(a, time);
+        double dvx = velocityXAt(b, time) - velocityXAt(a, time);
+        double dvy = velocityYAt(b, time) - velocityYAt(a, time);
+
+        // Balls that are too far apart to reach each other before they stop are skipped without solving anything
+        if (distance(dx, dy) - CONTACT_DISTANCE > reach(a) + reach(b)) {
+            return;
+        }
+
+        // The squared distance between the balls is |c + b*t + a*t^2|^2 - contact distance^2
+        double hax = 0.5 * (accelerationX[b] - accelerationX[a]);
+        double hay = 0.5 * (accelerationY[b] - accelerationY[a]);
+        double c4 = hax * hax + hay * hay;
+        double c3 = 2 * (hax * dvx + hay * dvy);
+        double c2 = dvx * dvx + dvy * dvy + 2 * (hax * dx + hay * dy);
+        double c1 = 2 * (dvx * dx + dvy * dy);
+        double c0 = dx * dx + dy * dy - CONTACT_DISTANCE * CONTACT_DISTANCE;
+        if (c0 <= 0) {
+            // Already touching, so they collide now if they are moving towards each other fast enough to be sure
+            // collide() sees them approaching, and otherwise once they have been pushed CONTACT_TOLERANCE into each
+            // other, or further in than they are now
+            double distance = distance(dx, dy);
+            if (c1 < -4 * REST_SPEED * distance) {
+                schedule(time, BALL, a, b);
+                return;
+            }
+            double inside = Math.min(CONTACT_DISTANCE, distance) - CONTACT_TOLERANCE;
+            double t = PoolPolynomials.firstQuarticCrossing(c4, c3, c2, c1, distance * distance - inside * inside, 0,
+                    horizon, roots);
+            if (!Double.isNaN(t)) {
+                schedule(time + t, BALL, a, b);
+            }
+            return;
+        }
+        double t = PoolPolynomials.firstQuarticCrossing(c4, c3, c2, c1, c0, 0, horizon, roots);
+        if (!Double.isNaN(t)) {
+            schedule(time + t, BALL, a, b);
+        }
+    }
+
+    // Returns the length of the vector (x, y). Unlike Math.hypot, this gives the same answer on every machine.
+    private static double distance(double x, double y) {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    // Returns how far a ball can get before its current stretch of motion ends, in meters: exactly how far it will
+    // roll before it stops, or at most how far it can slide before it starts to roll
+    private double reach(int ball) {
+        double vx = velocityXAt(ball, time);
+        double vy = velocityYAt(ball, time);
+        if (sliding[ball]) {
+            double t = stopTime[ball] - time;
+            return distance(vx, vy) * t + 0.5 * SLIDING_DECELERATION * t * t;
+        }
+        return (vx * vx + vy * vy) / (2 * DECELERATION);
+    }
+
+    // Cushion events carry the cushion hit in place of a second ball, as -2 - cushion so that it can't be mistaken
+    // for a ball or for -1
+    private static int cushionOf(int other) {
+        return -2 - other;
+    }
+
+    // Schedules an event, noting the versions of the balls involved so that it can be recognised later if their
+    // motion changes before then
+    private void schedule(double eventTime, int type, int ball, int other) {
+        events.add(eventTime, type, ball, version[ball], other, other < 0 ? 0 : version[other]);
+    }
+
+    private void grow(int capacity) {
+        startTime = Arrays.copyOf(startTime, capacity);
+        startX = Arrays.copyOf(startX, capacity);
+        startY = Arrays.copyOf(startY, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        accelerationX = Arrays.copyOf(accelerationX, capacity);
+        accelerationY = Arrays.copyOf(accelerationY, capacity);
+        stopTime = Arrays.copyOf(stopTime, capacity);
+        sliding = Arrays.copyOf(sliding, capacity);
+        spinX = Arrays.copyOf(spinX, capacity);
+        spinY = Arrays.copyOf(spinY, capacity);
+        sideSpin = Arrays.copyOf(sideSpin, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        moving = Arrays.copyOf(moving, capacity);
+        sunk = Arrays.copyOf(sunk, capacity);
+        version = Arrays.copyOf(version, capacity);
+        clusterSlot = Arrays.copyOf(clusterSlot, capacity);
+    }
+
+}
@@ -0,0 +1,137 @@
+// This class finds the real roots of the low-degree polynomials that come up when predicting when balls will hit
+// each other or the edges of the table. Balls move with constant deceleration between events, so their positions are
+// quadratic in time and the squared distance between two balls is a quartic. The roots of a polynomial are found
+// by first finding the roots of its derivative, which split the range into pieces on which the polynomial only rises
+// or only falls, and then bisecting each piece whose ends have opposite signs. Nothing is allocated, so predictions
+// can be made in tight loops.
+final strictfp class PoolPolynomials {
+
+    // Bisection stops once the bracket is narrower than this many seconds
+    private static final double TOLERANCE = 1e-12;
+    private static final int MAX_ITERATIONS = 100;
+
+    private PoolPolynomials() {
+    }
+
+    // Writes the roots of a*t^2 + b*t + c that lie strictly between lo and hi into roots, starting at offset and in
+    // increasing order, and returns how many there are
+    static int quadraticRoots(double a, double b, double c, double lo, double hi, double[] roots, int offset) {
+        double r1;
+        double r2;
+        if (a == 0) {
+            if (b == 0) {
+                return 0;
+            }
+            r1 = -c / b;
+            r2 = Double.NaN;
+        }
+        else {
+            double discriminant = b * b - 4 * a * c;
+            if (discriminant < 0) {
+                return 0;
+            }
+
+            // This form avoids subtracting nearly equal numbers when b is much larger than a and c
+            double q = -0.5 * (b + Math.copySign(Math.sqrt(discriminant), b));
+            r1 = q / a;
+            r2 = q == 0 ? Double.NaN : c / q;
+            if (r2 < r1) {
+                double swap = r1;
+                r1 = r2;
+                r2 = swap;
+            }
+        }
+        int count = 0;
+        if (r1 > lo && r1 < hi) {
+            roots[offset + count++] = r1;
+        }
+        if (r2 > lo && r2 < hi && (count == 0 || r2 != roots[offset])) {
+            roots[offset + count++] = r2;
+        }
+        return count;
+    }
+
+    // Writes the roots of a*t^3 + b*t^2 + c*t + d that lie strictly between lo and hi into roots, starting at offset
+    // and in increasing order, and returns how many there are
+    static int cubicRoots(double a, double b, double c, double d, double lo, double hi, double[] roots, int offset) {
+        int turns = quadraticRoots(3 * a, 2 * b, c, lo, hi, roots, offset);
+        double turn1 = turns > 0 ? roots[offset] : hi;
+        double turn2 = turns > 1 ? roots[offset + 1] : hi;
+        int count = 0;
+        double start = lo;
+        for (int piece = 0 ; piece <= turns ; piece++) {
+            double end = piece == 0 ? turn1 : piece == 1 ? turn2 : hi;
+            double startValue = cubic(a, b, c, d, start);
+            double endValue = cubic(a, b, c, d, end);
+            if ((startValue < 0) != (endValue < 0) && endValue != 0) {
+                double root = bisectCubic(a, b, c, d, start, end, startValue < 0);
+                if (root > lo && root < hi) {
+                    roots[offset + count++] = root;
+                }
+            }
+            else if (endValue == 0 && end < hi) {
+                roots[offset + count++] = end;
+            }
+            start = end;
+        }
+        return count;
+    }
+
+    // Returns the first time between lo and hi at which a*t^4 + b*t^3 + c*t^2 + d*t + e falls from above zero to zero
+    // or below, or NaN if it never does. scratch must have room for at least three values.
+    static double firstQuarticCrossing(double a, double b, double c, double d, double e, double lo, double hi,
+                                       double[] scratch) {
+        int turns = cubicRoots(4 * a, 3 * b, 2 * c, d, lo, hi, scratch, 0);
+        double start = lo;
+        double startValue = quartic(a, b, c, d, e, lo);
+        for (int piece = 0 ; piece <= turns ; piece++) {
+            double end = piece < turns ? scratch[piece] : hi;
+            double endValue = quartic(a, b, c, d, e, end);
+            if (startValue > 0 && endValue <= 0) {
+                return bisectQuartic(a, b, c, d, e, start, end);
+            }
+            start = end;
+            startValue = endValue;
+        }
+        return Double.NaN;
+    }
+
+    static double cubic(double a, double b, double c, double d, double t) {
+        return ((a * t + b) * t + c) * t + d;
+    }
+
+    static double quartic(double a, double b, double c, double d, double e, double t) {
+        return (((a * t + b) * t + c) * t + d) * t + e;
+    }
+
+    // Narrows down the root of a cubic between lo and hi, where it rises through zero if rising is true and falls
+    // through zero otherwise
+    private static double bisectCubic(double a, double b, double c, double d, double lo, double hi, boolean rising) {
+        for (int i = 0 ; i < MAX_ITERATIONS && hi - lo > TOLERANCE ; i++) {
+            double mid = 0.5 * (lo + hi);
+            if ((cubic(a, b, c, d, mid) < 0) == rising) {
+                lo = mid;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return 0.5 * (lo + hi);
+    }
+
+    // Narrows down where a quartic falls through zero between lo, where it is above zero, and hi, where it isn't.
+    // The upper end is returned, so the quartic is never above zero at the time found.
+    private static double bisectQuartic(double a, double b, double c, double d, double e, double lo, double hi) {
+        for (int i = 0 ; i < MAX_ITERATIONS && hi - lo > TOLERANCE ; i++) {
+            double mid = 0.5 * (lo + hi);
+            if (quartic(a, b, c, d, e, mid) > 0) {
+                lo = mid;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return hi;
+    }
+
+}
@@ -0,0 +1,88 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.LongAdder;
+
+// This class collects what each frame of the Pool table cost: how long the physics took to step, how many events it
+// handled, how many pairs of balls the grid passed on to be tested for a collision, how long the rest of the frame
+// took to update the scene, and how many frames were missed altogether because one came late. Each is kept in a
+// PoolHistogram, so recording a frame neither locks nor allocates and costs far less than the frame itself. The
+// summary can be shown over the table while it runs, and everything can be written to a file at the end of a session.
+final class PoolProfiler {
+
+    // Profiles are written here, one file per session
+    static final File DIRECTORY = new File("profiles");
+
+    // JavaFX tries to run a frame this often, in nanoseconds
+    private static final long FRAME_NANOS = 1_000_000_000 / 60;
+
+    private final PoolHistogram stepNanos = new PoolHistogram("physics step", "ns");
+    private final PoolHistogram events = new PoolHistogram("events", "");
+    private final PoolHistogram pairs = new PoolHistogram("pairs tested", "");
+    private final PoolHistogram renderNanos = new PoolHistogram("render", "ns");
+    private final PoolHistogram intervalNanos = new PoolHistogram("frame interval", "ns");
+    private final PoolHistogram[] histograms = {stepNanos, events, pairs, renderNanos, intervalNanos};
+
+    private final LongAdder droppedFrames = new LongAdder();
+
+    // Records one frame, which came intervalNanos after the one before
+    void recordFrame(long intervalNanos, long stepNanos, long events, long pairs, long renderNanos) {
+        this.intervalNanos.record(intervalNanos);
+        this.stepNanos.record(stepNanos);
+        this.events.record(events);
+        this.pairs.record(pairs);
+        this.renderNanos.record(renderNanos);
+
+        // A frame more than half a frame late means the frame that should have come in between was missed
+        long missed = (intervalNanos + FRAME_NANOS / 2) / FRAME_NANOS - 1;
+        if (missed > 0) {
+            droppedFrames.add(missed);
+        }
+    }
+
+    long getFrameCount() {
+        return stepNanos.getCount();
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames.sum();
+    }
+
+    // Returns a few lines giving the median, 99th percentile and worst of each measurement, with times in
+    // milliseconds
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("%-18s%9s%9s%9s%n", "frames: " + getFrameCount(), "p50", "p99", "max"));
+        for (PoolHistogram histogram : histograms) {
+            boolean nanos = histogram.getUnit().equals("ns");
+            String name = histogram.getName() + (nanos ? " ms" : "");
+            double scale = nanos ? 1e-6 : 1;
+            summary.append(String.format("%-18s%9.3f%9.3f%9.3f%n", name, histogram.getPercentile(0.5) * scale,
+                    histogram.getPercentile(0.99) * scale, histogram.getMax() * scale));
+        }
+        summary.append("dropped frames: ").append(getDroppedFrames());
+        return summary.toString();
+    }
+
+    // Writes the summary, followed by every bucket of every histogram as comma separated values, to file
+    void export(File file) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            out.println(summary());
+            out.println();
+            out.println("measurement,lowest,highest,frames");
+            for (PoolHistogram histogram : histograms) {
+                histogram.writeBuckets(out);
+            }
+        }
+    }
+
+    // Returns a new file in DIRECTORY to export this session's profile to
+    static File newSessionFile() {
+        return new File(DIRECTORY, "pool-" + System.currentTimeMillis() + ".csv");
+    }
+
+}
@@ -0,0 +1,271 @@
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+// This class draws the whole Pool table onto a single Canvas: the table itself, the balls, the cue, the preview of
+// the shot and the profiler overlay. Nothing it draws is a node of its own. PoolTable tells it where things are by
+// writing into its primitive arrays and fields, and calls draw() once a frame to paint them all over again.
+//
+// Everything that doesn't move is drawn once up front: the wood, felt, pockets and bumpers into one background image,
+// and each ball into a small sprite, so a frame is one image for the table, one per ball, and a few shapes for the
+// cue and preview. The arrays the shapes are drawn from are made once and refilled in place, so drawing a frame
+// allocates nothing here.
+final class PoolRenderer {
+
+    private static final double PIXELS_PER_METER = PoolGeometry.PIXELS_PER_METER;
+    private static final double BALL_RADIUS = PoolGeometry.BALL_RADIUS;
+
+    // Each ball is drawn with a ring this wide around its edge, half of it outside the ball, in its colour on a
+    // white ball for the stripes and the same colour as the rest of it for the solids
+    private static final double RING_WIDTH = 4;
+    private static final double SPRITE_RADIUS = BALL_RADIUS + RING_WIDTH / 2;
+    private static final double SPRITE_SIZE = Math.ceil(2 * SPRITE_RADIUS) + 2;
+
+    // The solid colours, by the ordinal of each BallNumber up to the 8. Stripes 9 to 15 use the colour of the solid
+    // eight below them.
+    private static final Color[] BALL_COLORS = {Color.WHITE,
+            new Color(244 / 255.0, 150 / 255.0, 4 / 255.0, 1),
+            new Color(1 / 255.0, 1 / 255.0, 128 / 255.0, 1),
+            new Color(216 / 255.0, 0 / 255.0, 0, 1),
+            new Color(77 / 255.0, 1 / 255.0, 117 / 255.0, 1),
+            new Color(246 / 255.0, 93 / 255.0, 4 / 255.0, 1),
+            new Color(4 / 255.0, 81 / 255.0, 4 / 255.0, 1),
+            new Color(129 / 255.0, 1 / 255.0, 30 / 255.0, 1),
+            Color.BLACK};
+
+    private static final Color FELT = new Color(39 / 255.0, 178 / 255.0, 115 / 255.0, 1);
+    private static final Color BUMPER = new Color(36 / 255.0, 136 / 255.0, 78 / 255.0, 1);
+
+    // The cue is drawn this far back from the centre of the cue ball, and this wide either side of its middle at
+    // the tip and the butt, in pixels
+    private static final double CUE_DISTANCE = 15;
+    private static final double CUE_WIDTH_TIP = 3;
+    private static final double CUE_WIDTH_BUTT = 6;
+
+    // The preview paths are dashed with these lengths of line and gap, in pixels
+    private static final double[] PREVIEW_DASHES = {6, 6};
+    private static final double PREVIEW_OPACITY = 0.7;
+
+    private final Canvas canvas = new Canvas(PoolGeometry.SCENE_WIDTH, PoolGeometry.SCENE_HEIGHT);
+    private final GraphicsContext graphics = canvas.getGraphicsContext2D();
+    private final Image background;
+    private final Image[] sprites = new Image[BallNumber.values().length];
+
+    // Each ball's centre in pixels, and whether it is drawn at all, by the ordinal of its BallNumber
+    private final double[] ballX;
+    private final double[] ballY;
+    private final boolean[] ballShown;
+
+    // The cue, pointing at (cueBallX, cueBallY) from angle radians clockwise from the positive x-axis, and the
+    // corners it is drawn with
+    private boolean cueShown;
+    private double cueBallX;
+    private double cueBallY;
+    private double cueAngle;
+    private final double[] cueX = new double[4];
+    private final double[] cueY = new double[4];
+    private final double[] cueOverlayX = new double[4];
+    private final double[] cueOverlayY = new double[4];
+
+    // The preview of the shot, as points in pixels, and the ghost ball where the cue ball meets the object ball
+    private boolean previewShown;
+    private final double[] cuePathX = new double[PoolShotPreview.MAX_POINTS];
+    private final double[] cuePathY = new double[PoolShotPreview.MAX_POINTS];
+    private int cuePathPoints;
+    private final double[] objectPathX = new double[PoolShotPreview.MAX_POINTS];
+    private final double[] objectPathY = new double[PoolShotPreview.MAX_POINTS];
+    private int objectPathPoints;
+    private boolean ghostShown;
+    private double ghostX;
+    private double ghostY;
+
+    // The text shown over the top left of the felt, or null for none
+    private String overlay;
+
+    // Makes a renderer for a game with one ball of each BallNumber, which must be made on the JavaFX thread since it
+    // draws the background and sprites straight away
+    PoolRenderer() {
+        int count = BallNumber.values().length;
+        ballX = new double[count];
+        ballY = new double[count];
+        ballShown = new boolean[count];
+        for (int i = 0 ; i < count ; i++) {
+            sprites[i] = drawSprite(i);
+        }
+        background = drawBackground();
+        graphics.setFont(Font.font("Monospaced", 12));
+        graphics.setTextBaseline(VPos.TOP);
+    }
+
+    Canvas getCanvas() {
+        return canvas;
+    }
+
+    // Moves a ball's centre to (x, y), in pixels, and shows or hides it
+    void setBall(int ball, double x, double y, boolean shown) {
+        ballX[ball] = x;
+        ballY[ball] = y;
+        ballShown[ball] = shown;
+    }
+
+    // Shows the cue pointing at the cue ball centred at (x, y), in pixels, from angle radians clockwise from the
+    // positive x-axis
+    void showCue(double x, double y, double angle) {
+        cueShown = true;
+        cueBallX = x;
+        cueBallY = y;
+        cueAngle = angle;
+    }
+
+    void hideCue() {
+        cueShown = false;
+    }
+
+    // Shows the paths worked out by preview
+    void showPreview(PoolShotPreview preview) {
+        previewShown = true;
+        cuePathPoints = preview.getCuePointCount();
+        for (int i = 0 ; i < cuePathPoints ; i++) {
+            cuePathX[i] = preview.getCueX(i) * PIXELS_PER_METER;
+            cuePathY[i] = preview.getCueY(i) * PIXELS_PER_METER;
+        }
+        objectPathPoints = preview.getObjectPointCount();
+        for (int i = 0 ; i < objectPathPoints ; i++) {
+            objectPathX[i] = preview.getObjectX(i) * PIXELS_PER_METER;
+            objectPathY[i] = preview.getObjectY(i) * PIXELS_PER_METER;
+        }
+        ghostShown = preview.getObjectBall() >= 0;
+        ghostX = preview.getGhostX() * PIXELS_PER_METER;
+        ghostY = preview.getGhostY() * PIXELS_PER_METER;
+    }
+
+    void hidePreview() {
+        previewShown = false;
+    }
+
+    // Shows text over the top left of the felt, or nothing if text is null
+    void setOverlay(String text) {
+        overlay = text;
+    }
+
+    // Paints everything as it is now
+    void draw() {
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        graphics.drawImage(background, 0, 0);
+        for (int i = 0 ; i < ballX.length ; i++) {
+            if (ballShown[i]) {
+                graphics.drawImage(sprites[i], ballX[i] - SPRITE_SIZE / 2, ballY[i] - SPRITE_SIZE / 2);
+            }
+        }
+        if (previewShown) {
+            drawPreview();
+        }
+        if (cueShown) {
+            drawCue();
+        }
+        if (overlay != null) {
+            graphics.setFill(Color.WHITE);
+            graphics.fillText(overlay, PoolGeometry.TABLE_PADDING + PoolGeometry.BUMPER_WIDTH + 10,
+                    PoolGeometry.TABLE_PADDING + PoolGeometry.BUMPER_WIDTH + 10);
+        }
+    }
+
+    private void drawPreview() {
+        graphics.save();
+        graphics.setGlobalAlpha(PREVIEW_OPACITY);
+        graphics.setStroke(Color.WHITE);
+        graphics.setLineWidth(1);
+        graphics.setLineDashes(PREVIEW_DASHES);
+        graphics.strokePolyline(cuePathX, cuePathY, cuePathPoints);
+        graphics.strokePolyline(objectPathX, objectPathY, objectPathPoints);
+        if (ghostShown) {
+            graphics.strokeOval(ghostX - BALL_RADIUS, ghostY - BALL_RADIUS, 2 * BALL_RADIUS, 2 * BALL_RADIUS);
+        }
+        graphics.restore();
+    }
+
+    // Draws the cue as a tapering shaft, with a lighter bow tie across it between the corners of its tip and butt
+    private void drawCue() {
+        double cos = Math.cos(cueAngle);
+        double sin = Math.sin(cueAngle);
+        double butt = CUE_DISTANCE + PoolGeometry.CUE_LENGTH;
+        cueX[0] = cueBallX + cos * CUE_DISTANCE + sin * CUE_WIDTH_TIP;
+        cueY[0] = cueBallY + sin * CUE_DISTANCE - cos * CUE_WIDTH_TIP;
+        cueX[1] = cueBallX + cos * CUE_DISTANCE - sin * CUE_WIDTH_TIP;
+        cueY[1] = cueBallY + sin * CUE_DISTANCE + cos * CUE_WIDTH_TIP;
+        cueX[2] = cueBallX + cos * butt - sin * CUE_WIDTH_BUTT;
+        cueY[2] = cueBallY + sin * butt + cos * CUE_WIDTH_BUTT;
+        cueX[3] = cueBallX + cos * butt + sin * CUE_WIDTH_BUTT;
+        cueY[3] = cueBallY + sin * butt - cos * CUE_WIDTH_BUTT;
+        cueOverlayX[0] = cueX[0];
+        cueOverlayY[0] = cueY[0];
+        cueOverlayX[1] = cueX[1];
+        cueOverlayY[1] = cueY[1];
+        cueOverlayX[2] = cueX[3];
+        cueOverlayY[2] = cueY[3];
+        cueOverlayX[3] = cueX[2];
+        cueOverlayY[3] = cueY[2];
+        graphics.setFill(Color.DARKMAGENTA);
+        graphics.fillPolygon(cueX, cueY, 4);
+        graphics.setFill(Color.BEIGE);
+        graphics.fillPolygon(cueOverlayX, cueOverlayY, 4);
+    }
+
+    // Draws the wood, felt, pockets and bumpers, which never change, into an image
+    private static Image drawBackground() {
+        Canvas canvas = new Canvas(PoolGeometry.SCENE_WIDTH, PoolGeometry.SCENE_HEIGHT);
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.setFill(Color.SADDLEBROWN);
+        graphics.fillRoundRect(PoolGeometry.CUE_LENGTH / 2, PoolGeometry.CUE_LENGTH / 2, PoolGeometry.TABLE_WIDTH,
+                PoolGeometry.TABLE_HEIGHT, 30, 30);
+        graphics.setFill(FELT);
+        graphics.fillRoundRect(PoolGeometry.TABLE_PADDING, PoolGeometry.TABLE_PADDING, PoolGeometry.FELT_WIDTH,
+                PoolGeometry.FELT_HEIGHT, 25, 25);
+        graphics.setFill(Color.BLACK);
+        double pocketRadius = PoolGeometry.POCKET_RADIUS;
+        for (int i = 0 ; i < PoolGeometry.POCKET_X.length ; i++) {
+            graphics.fillOval(PoolGeometry.POCKET_X[i] - pocketRadius, PoolGeometry.POCKET_Y[i] - pocketRadius,
+                    2 * pocketRadius, 2 * pocketRadius);
+        }
+
+        // The bumpers are drawn from the same shapes in PoolGeometry that the physics bounces balls off
+        graphics.setFill(BUMPER);
+        for (double[] bumper : PoolGeometry.BUMPERS) {
+            int corners = bumper.length / 2;
+            double[] x = new double[corners];
+            double[] y = new double[corners];
+            for (int i = 0 ; i < corners ; i++) {
+                x[i] = bumper[2 * i];
+                y[i] = bumper[2 * i + 1];
+            }
+            graphics.fillPolygon(x, y, corners);
+        }
+        return snapshot(canvas);
+    }
+
+    // Draws a ball, centred in a square image SPRITE_SIZE wide
+    private static Image drawSprite(int ordinal) {
+        Canvas canvas = new Canvas(SPRITE_SIZE, SPRITE_SIZE);
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        double centre = SPRITE_SIZE / 2;
+        graphics.setFill(BALL_COLORS[ordinal < BALL_COLORS.length ? ordinal : ordinal - 8]);
+        graphics.fillOval(centre - SPRITE_RADIUS, centre - SPRITE_RADIUS, 2 * SPRITE_RADIUS, 2 * SPRITE_RADIUS);
+        if (ordinal >= BALL_COLORS.length) {
+            double inner = BALL_RADIUS - RING_WIDTH / 2;
+            graphics.setFill(Color.WHITE);
+            graphics.fillOval(centre - inner, centre - inner, 2 * inner, 2 * inner);
+        }
+        return snapshot(canvas);
+    }
+
+    private static Image snapshot(Canvas canvas) {
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        return canvas.snapshot(parameters, null);
+    }
+
+}
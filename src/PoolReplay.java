@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+// This class records a shot so that it can be played back from any moment, at any speed, forwards or backwards. A
+// shot is kept as the table before it and the log of events PoolPhysics handled while playing it out, along with
+// the stretches of motion those events started, which for the break comes to a few kilobytes.
+//
+// While a shot is recorded, every stretch of motion a ball starts on is kept as a segment, in the order they start.
+// Within a segment a ball's position is a simple function of time, so finding where every ball is at some moment
+// only needs the segment each ball was on then. A keyframe every KEYFRAME_INTERVAL segments holds the segment each
+// ball is on at that point, so seeking is a binary search for the last segment started by then, followed by at most
+// KEYFRAME_INTERVAL steps from the keyframe before it. Nothing is simulated while seeking, and the positions found
+// are exactly the ones the simulation had.
+strictfp final class PoolReplay implements PoolEventListener {
+
+    // The number of segments between keyframes
+    static final int KEYFRAME_INTERVAL = 32;
+
+    // Segments are kept in the layout filled in by PoolPhysics.getMotion()
+    private static final int MOTION = 8;
+    private static final int START_TIME = 0;
+    private static final int START_X = 1;
+    private static final int START_Y = 2;
+    private static final int VELOCITY_X = 3;
+    private static final int VELOCITY_Y = 4;
+    private static final int ACCELERATION_X = 5;
+    private static final int ACCELERATION_Y = 6;
+    private static final int STOP_TIME = 7;
+
+    private final PoolPhysics physics = new PoolPhysics();
+    private final double[] motion = new double[MOTION];
+
+    // The table before the shot, in meters
+    private int count;
+    private double[] startX = new double[0];
+    private double[] startY = new double[0];
+    private boolean[] startSunk = new boolean[0];
+
+    // The log of events, in the order they were handled
+    private int eventCount;
+    private byte[] eventType = new byte[64];
+    private int[] eventBall = new int[64];
+    private int[] eventOther = new int[64];
+
+    // Each segment's ball, whether the ball is sunk, and its motion, MOTION doubles per segment
+    private int segmentCount;
+    private int[] segmentBall = new int[64];
+    private boolean[] segmentSunk = new boolean[64];
+    private double[] segments = new double[64 * MOTION];
+
+    // keyframes[k * count + ball] is the last segment ball started before segment k * KEYFRAME_INTERVAL, or -1 if it
+    // is still where it was before the shot
+    private int[] keyframes = new int[0];
+
+    // How long the shot lasts, until the last ball stops
+    private double duration;
+
+    // The segment each ball is on at the time last sought, and where each ball is then
+    private int[] current = new int[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private boolean[] sunk = new boolean[0];
+
+    // Records a shot of cueBall on table, which must have every ball at rest, at speed m/s in direction, in radians
+    // clockwise from the positive x-axis, with the cue tip at (tipX, tipY) as in PoolPhysics.shoot(). The table itself
+    // is left alone. Afterwards the replay is at the start of the shot. Arrays are reused once they are large enough,
+    // so recording shot after shot doesn't allocate.
+    void record(PoolPhysics table, int cueBall, double speed, double direction, double tipX, double tipY) {
+        physics.copyFrom(table);
+        count = physics.getBallCount();
+        if (startX.length < count) {
+            startX = new double[count];
+            startY = new double[count];
+            startSunk = new boolean[count];
+            current = new int[count];
+            x = new double[count];
+            y = new double[count];
+            sunk = new boolean[count];
+        }
+        for (int i = 0 ; i < count ; i++) {
+            startX[i] = physics.getX(i);
+            startY[i] = physics.getY(i);
+            startSunk[i] = physics.isSunk(i);
+        }
+        eventCount = 0;
+        segmentCount = 0;
+        physics.setListener(this);
+        physics.shoot(cueBall, speed, direction, tipX, tipY);
+        addSegment(cueBall);
+        physics.advanceToRest();
+        physics.setListener(null);
+        duration = physics.getTime();
+        buildKeyframes();
+        seek(0);
+    }
+
+    @Override
+    public void eventHandled(PoolPhysics physics, int type, int ball, int other) {
+        if (eventCount == eventType.length) {
+            int capacity = eventCount * 2;
+            eventType = Arrays.copyOf(eventType, capacity);
+            eventBall = Arrays.copyOf(eventBall, capacity);
+            eventOther = Arrays.copyOf(eventOther, capacity);
+        }
+        eventType[eventCount] = (byte) type;
+        eventBall[eventCount] = ball;
+        eventOther[eventCount] = other;
+        eventCount++;
+        addSegment(ball);
+        if (other >= 0) {
+            addSegment(other);
+        }
+    }
+
+    int getBallCount() {
+        return count;
+    }
+
+    // Returns how long the shot lasts, in seconds, from the strike until the last ball stops
+    double getDuration() {
+        return duration;
+    }
+
+    int getEventCount() {
+        return eventCount;
+    }
+
+    // Returns the kind of an event, one of those in PoolPhysics
+    int getEventType(int event) {
+        return eventType[event];
+    }
+
+    int getEventBall(int event) {
+        return eventBall[event];
+    }
+
+    // Returns the second ball of a collision, or -1 for an event involving only one ball
+    int getEventOther(int event) {
+        return eventOther[event];
+    }
+
+    // Moves the replay to time t, in seconds from the strike, which may be earlier or later than where it was.
+    // Times before the strike or after the last ball stops show the table as it was then.
+    void seek(double t) {
+        // Finds how many segments have started by t
+        int low = 0;
+        int high = segmentCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (segments[middle * MOTION + START_TIME] <= t) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        int keyframe = low / KEYFRAME_INTERVAL;
+        System.arraycopy(keyframes, keyframe * count, current, 0, count);
+        for (int segment = keyframe * KEYFRAME_INTERVAL ; segment < low ; segment++) {
+            current[segmentBall[segment]] = segment;
+        }
+
+        for (int i = 0 ; i < count ; i++) {
+            int segment = current[i];
+            if (segment < 0) {
+                x[i] = startX[i];
+                y[i] = startY[i];
+                sunk[i] = startSunk[i];
+                continue;
+            }
+            int m = segment * MOTION;
+            double elapsed = Math.min(t, segments[m + STOP_TIME]) - segments[m + START_TIME];
+            x[i] = PoolPhysics.position(segments[m + START_X], segments[m + VELOCITY_X],
+                    segments[m + ACCELERATION_X], elapsed);
+            y[i] = PoolPhysics.position(segments[m + START_Y], segments[m + VELOCITY_Y],
+                    segments[m + ACCELERATION_Y], elapsed);
+            sunk[i] = segmentSunk[segment];
+        }
+    }
+
+    // Returns the x coordinate of a ball at the time last sought, in meters
+    double getX(int ball) {
+        return x[ball];
+    }
+
+    double getY(int ball) {
+        return y[ball];
+    }
+
+    boolean isSunk(int ball) {
+        return sunk[ball];
+    }
+
+    // Adds a segment for the stretch of motion a ball has just started on
+    private void addSegment(int ball) {
+        if (segmentCount == segmentBall.length) {
+            int capacity = segmentCount * 2;
+            segmentBall = Arrays.copyOf(segmentBall, capacity);
+            segmentSunk = Arrays.copyOf(segmentSunk, capacity);
+            segments = Arrays.copyOf(segments, capacity * MOTION);
+        }
+        segmentBall[segmentCount] = ball;
+        segmentSunk[segmentCount] = physics.isSunk(ball);
+        physics.getMotion(ball, motion);
+        System.arraycopy(motion, 0, segments, segmentCount * MOTION, MOTION);
+        segmentCount++;
+    }
+
+    private void buildKeyframes() {
+        int keyframeCount = segmentCount / KEYFRAME_INTERVAL + 1;
+        if (keyframes.length < keyframeCount * count) {
+            keyframes = new int[keyframeCount * count];
+        }
+        Arrays.fill(current, 0, count, -1);
+        for (int segment = 0 ; segment <= segmentCount ; segment++) {
+            if (segment % KEYFRAME_INTERVAL == 0) {
+                System.arraycopy(current, 0, keyframes, segment / KEYFRAME_INTERVAL * count, count);
+            }
+            if (segment < segmentCount) {
+                current[segmentBall[segment]] = segment;
+            }
+        }
+    }
+
+}
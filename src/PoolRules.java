@@ -0,0 +1,322 @@
+import java.util.SplittableRandom;
+
+// This class holds the rules of 8-ball: whose turn it is, who has solids and who has stripes, which shots are fouls,
+// and how the game is won and lost. A game's state is packed into a long and never changed, and afterShot() works out
+// the state after a shot from the state before it and what happened in the shot, so the rules are a pure function
+// that any number of threads can run at once. Nothing here allocates or uses JavaFX, so a shot search can judge
+// every shot it tries by the rules, and millions of shots a second can be judged.
+//
+// A shot is judged by four things, which a Shot collects from the shot's events: the first ball the cue ball hit,
+// the first object ball pocketed, every ball pocketed, and every ball that hit a cushion after the cue ball first hit
+// a ball. Balls are numbered by the ordinal of their BallNumber, as in PoolPhysics.newRack(), so the cue ball is 0,
+// the solids 1 to 7, the 8 ball 8 and the stripes 9 to 15.
+//
+// The rules are those of most bar tables:
+//  - The break must pocket a ball or drive at least four object balls to a cushion. The table is open after the
+//    break, and the breaker shoots again if anything was pocketed. Pocketing the 8 on the break wins, unless the cue
+//    ball follows it.
+//  - On an open table the first object ball pocketed without a foul decides the shooter's group
+//  - The cue ball must hit a ball of the shooter's group first, or the 8 once the group is cleared, or anything but
+//    the 8 on an open table. Then a ball must be pocketed or some ball must hit a cushion.
+//  - A foul, including pocketing the cue ball, gives the other player the cue ball in hand. Balls pocketed on a foul
+//    stay down.
+//  - The shooter keeps shooting while they pocket balls of their own group without a foul
+//  - Pocketing the 8 after clearing one's group, without a foul, wins. Pocketing it at any other time loses.
+final class PoolRules {
+
+    static final int CUE_BALL = 0;
+    static final int EIGHT_BALL = 8;
+
+    // Groups, as held by a player
+    static final int OPEN = 0;
+    static final int SOLIDS = 1;
+    static final int STRIPES = 2;
+
+    // Fouls, as made on the last shot
+    static final int NO_FOUL = 0;
+    static final int SCRATCH = 1;
+    static final int NO_CONTACT = 2;
+    static final int WRONG_BALL = 3;
+    static final int NO_RAIL = 4;
+    static final int BAD_BREAK = 5;
+
+    // Returned by getWinner() while the game is still going
+    static final int NO_WINNER = -1;
+
+    // Masks of balls, with bit n for ball n
+    static final int SOLID_BALLS = 0x00FE;
+    static final int STRIPE_BALLS = 0xFE00;
+    static final int OBJECT_BALLS = 0xFFFE;
+    private static final int ALL_BALLS = 0xFFFF;
+
+    // A break that pockets nothing must drive at least this many object balls to a cushion
+    private static final int BREAK_CUSHION_BALLS = 4;
+
+    // The layout of a packed state. Bits 0-15 are set for the balls on the table, with the cue ball always on it.
+    private static final int SHOOTER_SHIFT = 16;
+    private static final int GROUP_SHIFT = 17;
+    private static final int BALL_IN_HAND_SHIFT = 19;
+    private static final int BREAK_SHIFT = 20;
+    private static final int WINNER_SHIFT = 21;
+    private static final int FOUL_SHIFT = 23;
+    private static final int CONTINUED_SHIFT = 26;
+
+    private PoolRules() {
+    }
+
+    // Returns the state of a new game, with every ball racked and player 0 to break
+    static long newGame() {
+        return ALL_BALLS | 1L << BREAK_SHIFT | (long) (NO_WINNER + 1) << WINNER_SHIFT;
+    }
+
+    // Returns the player to shoot next, 0 or 1
+    static int getShooter(long state) {
+        return (int) (state >>> SHOOTER_SHIFT) & 1;
+    }
+
+    // Returns the group a player is on, OPEN until the groups are decided
+    static int getGroup(long state, int player) {
+        int group = (int) (state >>> GROUP_SHIFT) & 3;
+        return group == OPEN || player == 0 ? group : SOLIDS + STRIPES - group;
+    }
+
+    // Returns the balls a player must hit first: their group while any of it is on the table, then the 8, or
+    // anything but the 8 while the table is open
+    static int getTargets(long state, int player) {
+        int group = getGroup(state, player);
+        int onTable = getBallsOnTable(state);
+        if (group == OPEN) {
+            return onTable & OBJECT_BALLS & ~(1 << EIGHT_BALL);
+        }
+        int targets = onTable & (group == SOLIDS ? SOLID_BALLS : STRIPE_BALLS);
+        return targets != 0 ? targets : 1 << EIGHT_BALL;
+    }
+
+    // Returns a mask of the balls still on the table, with bit n set for ball n
+    static int getBallsOnTable(long state) {
+        return (int) state & ALL_BALLS;
+    }
+
+    static boolean isOnTable(long state, int ball) {
+        return (state & 1L << ball) != 0;
+    }
+
+    // Returns true if the shooter may put the cue ball anywhere on the table before shooting
+    static boolean hasBallInHand(long state) {
+        return (state & 1L << BALL_IN_HAND_SHIFT) != 0;
+    }
+
+    static boolean isBreak(long state) {
+        return (state & 1L << BREAK_SHIFT) != 0;
+    }
+
+    // Returns the player who has won, or NO_WINNER while the game goes on
+    static int getWinner(long state) {
+        return (int) (state >>> WINNER_SHIFT & 3) - 1;
+    }
+
+    // Returns the foul made on the last shot, or NO_FOUL
+    static int getFoul(long state) {
+        return (int) (state >>> FOUL_SHIFT) & 7;
+    }
+
+    // Returns true if the last shot was good enough for its shooter to shoot again
+    static boolean didContinue(long state) {
+        return (state & 1L << CONTINUED_SHIFT) != 0;
+    }
+
+    // Returns the state after a shot, as collected by shot, from the state before it. A finished game stays as it is.
+    static long afterShot(long state, Shot shot) {
+        return afterShot(state, shot.getFirstHit(), shot.getFirstPocketed(), shot.getPocketed(),
+                shot.getCushioned());
+    }
+
+    // Returns the state after a shot from the state before it, given the first ball the cue ball hit, or -1 if none,
+    // the first object ball pocketed, or -1 if none, and masks of the balls pocketed and of the balls that hit a
+    // cushion after the cue ball first hit a ball
+    static long afterShot(long state, int firstHit, int firstPocketed, int pocketed, int cushioned) {
+        if (getWinner(state) != NO_WINNER) {
+            return state;
+        }
+        int shooter = getShooter(state);
+        int opponent = 1 - shooter;
+        boolean scratch = (pocketed & 1 << CUE_BALL) != 0;
+        boolean eight = (pocketed & 1 << EIGHT_BALL) != 0;
+        int objectsPocketed = pocketed & OBJECT_BALLS & ~(1 << EIGHT_BALL);
+        int onTable = getBallsOnTable(state) & ~(pocketed & OBJECT_BALLS);
+        int group = (int) (state >>> GROUP_SHIFT) & 3;
+
+        if (isBreak(state)) {
+            int foul = scratch ? SCRATCH
+                    : objectsPocketed == 0 && !eight && Integer.bitCount(cushioned & OBJECT_BALLS) < BREAK_CUSHION_BALLS
+                    ? BAD_BREAK : NO_FOUL;
+            if (eight) {
+                return finished(onTable, group, foul, foul == NO_FOUL ? shooter : opponent);
+            }
+            boolean continued = foul == NO_FOUL && objectsPocketed != 0;
+            return pack(onTable, continued ? shooter : opponent, OPEN, foul != NO_FOUL, foul, continued);
+        }
+
+        int targets = getTargets(state, shooter);
+        int foul = scratch ? SCRATCH
+                : firstHit < 0 ? NO_CONTACT
+                : (targets & 1 << firstHit) == 0 ? WRONG_BALL
+                : pocketed == 0 && cushioned == 0 ? NO_RAIL
+                : NO_FOUL;
+        if (eight) {
+            boolean won = foul == NO_FOUL && targets == 1 << EIGHT_BALL;
+            return finished(onTable, group, foul, won ? shooter : opponent);
+        }
+        if (foul != NO_FOUL) {
+            return pack(onTable, opponent, group, true, foul, false);
+        }
+
+        // The first ball pocketed on an open table decides the groups
+        if (group == OPEN && firstPocketed >= 0) {
+            boolean solid = (SOLID_BALLS & 1 << firstPocketed) != 0;
+            group = solid == (shooter == 0) ? SOLIDS : STRIPES;
+        }
+        int own = group == OPEN ? 0 : (group == SOLIDS) == (shooter == 0) ? SOLID_BALLS : STRIPE_BALLS;
+        boolean continued = (objectsPocketed & own) != 0;
+        return pack(onTable, continued ? shooter : opponent, group, false, NO_FOUL, continued);
+    }
+
+    // group is always player 0's group
+    private static long pack(int onTable, int shooter, int group, boolean ballInHand, int foul, boolean continued) {
+        return onTable | 1 << CUE_BALL | (long) shooter << SHOOTER_SHIFT | (long) group << GROUP_SHIFT |
+                (ballInHand ? 1L : 0) << BALL_IN_HAND_SHIFT | (long) (NO_WINNER + 1) << WINNER_SHIFT |
+                (long) foul << FOUL_SHIFT | (continued ? 1L : 0) << CONTINUED_SHIFT;
+    }
+
+    private static long finished(int onTable, int group, int foul, int winner) {
+        long state = pack(onTable, winner, group, false, foul, false);
+        return state & ~(3L << WINNER_SHIFT) | (long) (winner + 1) << WINNER_SHIFT;
+    }
+
+    // A Shot collects what the rules need to know about a shot from its events, either as a PoolEventListener while
+    // the shot is played or afterwards from a PoolReplay's event log. It can be reset and used again for each shot,
+    // so judging shot after shot doesn't allocate.
+    static final class Shot implements PoolEventListener {
+
+        private int firstHit;
+        private int firstPocketed;
+        private int pocketed;
+        private int cushioned;
+
+        Shot() {
+            reset();
+        }
+
+        // Forgets the last shot, ready for the next
+        void reset() {
+            firstHit = -1;
+            firstPocketed = -1;
+            pocketed = 0;
+            cushioned = 0;
+        }
+
+        // Collects the events of the shot recorded by replay, in place of any collected before
+        void read(PoolReplay replay) {
+            reset();
+            for (int i = 0 ; i < replay.getEventCount() ; i++) {
+                add(replay.getEventType(i), replay.getEventBall(i), replay.getEventOther(i));
+            }
+        }
+
+        @Override
+        public void eventHandled(PoolPhysics physics, int type, int ball, int other) {
+            add(type, ball, other);
+        }
+
+        // Adds one event, of a kind in PoolPhysics, involving ball and, for a collision, other
+        void add(int type, int ball, int other) {
+            switch (type) {
+                case PoolPhysics.BALL:
+                    if (firstHit < 0 && (ball == CUE_BALL || other == CUE_BALL)) {
+                        firstHit = ball == CUE_BALL ? other : ball;
+                    }
+                    break;
+                case PoolPhysics.CUSHION:
+                    if (firstHit >= 0) {
+                        cushioned |= 1 << ball;
+                    }
+                    break;
+                case PoolPhysics.POCKET:
+                    pocketed |= 1 << ball;
+                    if (firstPocketed < 0 && ball != CUE_BALL) {
+                        firstPocketed = ball;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        int getFirstHit() {
+            return firstHit;
+        }
+
+        int getFirstPocketed() {
+            return firstPocketed;
+        }
+
+        int getPocketed() {
+            return pocketed;
+        }
+
+        int getCushioned() {
+            return cushioned;
+        }
+    }
+
+    // Plays random shots to collect a pool of real shots, then plays games out of them over and over by the rules,
+    // reporting how many shots are judged per second
+    public static void main(String[] args) {
+        int shots = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        long evaluations = args.length > 1 ? Long.parseLong(args[1]) : 100_000_000;
+        SplittableRandom random = new SplittableRandom(1);
+        int[] firstHit = new int[shots];
+        int[] firstPocketed = new int[shots];
+        int[] pocketed = new int[shots];
+        int[] cushioned = new int[shots];
+        PoolPhysics rack = PoolPhysics.newRack();
+        PoolPhysics table = new PoolPhysics();
+        Shot shot = new Shot();
+        table.setListener(shot);
+        for (int i = 0 ; i < shots ; i++) {
+            if (i % 8 == 0) {
+                table.copyFrom(rack);
+            }
+            if (table.isSunk(CUE_BALL)) {
+                table.setSunk(CUE_BALL, false);
+            }
+            shot.reset();
+            table.shoot(CUE_BALL, random.nextDouble(0.5, 5), random.nextDouble(2 * Math.PI));
+            table.advanceToRest();
+            firstHit[i] = shot.getFirstHit();
+            firstPocketed[i] = shot.getFirstPocketed();
+            pocketed[i] = shot.getPocketed();
+            cushioned[i] = shot.getCushioned();
+        }
+
+        for (int round = 0 ; round < 5 ; round++) {
+            long start = System.nanoTime();
+            long state = newGame();
+            long games = 0;
+            long checksum = 0;
+            for (long n = 0 ; n < evaluations ; n++) {
+                int i = (int) (n % shots);
+                state = afterShot(state, firstHit[i], firstPocketed[i], pocketed[i], cushioned[i]);
+                if (getWinner(state) != NO_WINNER) {
+                    checksum += getWinner(state);
+                    games++;
+                    state = newGame();
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Judged %,d shots in %.3f s (%,.0f shots/s), finishing %,d games (checksum %d)%n",
+                    evaluations, seconds, evaluations / seconds, games, checksum);
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+// A shot of the cue ball: the direction it is struck in, in radians clockwise from the positive x-axis of the scene,
+// and the speed it sets off at, in m/s
+final class PoolShot {
+
+    private final double direction;
+    private final double speed;
+
+    PoolShot(double direction, double speed) {
+        this.direction = direction;
+        this.speed = speed;
+    }
+
+    double getDirection() {
+        return direction;
+    }
+
+    double getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.4f rad at %.3f m/s", direction, speed);
+    }
+
+}
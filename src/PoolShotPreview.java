@@ -0,0 +1,149 @@
+// This class works out where a shot would send the cue ball and the first ball it hits, so that their paths can be
+// drawn while the shot is being lined up. The shot is played on a copy of the table by the same PoolPhysics that
+// plays the real shot, so the preview allows for every cushion, pocket and other ball exactly as the shot will, but
+// is cut short after a few bounces so that it takes well under a millisecond. Each path is kept as the points where
+// the ball changes course, in meters, and the copy of the table and the paths are reused from one preview to the
+// next, so working out a preview doesn't allocate.
+final class PoolShotPreview implements PoolEventListener {
+
+    // The most points kept for each path, including where it starts and ends
+    static final int MAX_POINTS = 6;
+
+    // The preview stops after this many events, or this many seconds into the shot, even if the paths aren't done
+    private static final int MAX_EVENTS = 100;
+    private static final double MAX_SECONDS = 4;
+
+    // Points closer together than this, in meters, are the same point
+    private static final double SAME_POINT = 1e-6;
+
+    private final PoolPhysics physics = new PoolPhysics();
+
+    private int cueBall;
+    private final double[] cuePath = new double[2 * MAX_POINTS];
+    private int cuePoints;
+
+    // The first ball the cue ball hits, or -1 if it doesn't hit one
+    private int objectBall;
+    private final double[] objectPath = new double[2 * MAX_POINTS];
+    private int objectPoints;
+
+    // Where the centre of the cue ball is when it hits the object ball
+    private double ghostX;
+    private double ghostY;
+
+    PoolShotPreview() {
+        physics.setListener(this);
+    }
+
+    // Works out the paths for a shot of cueBall on table, which must have every ball at rest, at speed m/s in
+    // direction, in radians clockwise from the positive x-axis, with the cue tip at (tipX, tipY) as in
+    // PoolPhysics.shoot()
+    void compute(PoolPhysics table, int cueBall, double speed, double direction, double tipX, double tipY) {
+        physics.copyFrom(table);
+        this.cueBall = cueBall;
+        objectBall = -1;
+        cuePoints = 0;
+        objectPoints = 0;
+        addPoint(cueBall);
+        physics.shoot(cueBall, speed, direction, tipX, tipY);
+        for (int events = 0 ; events < MAX_EVENTS && !isDone() && physics.getNextEventTime() <= MAX_SECONDS ;
+             events++) {
+            physics.advanceTo(physics.getNextEventTime());
+        }
+
+        // A path cut short ends where its ball had got to
+        if (!isDone() && physics.getNextEventTime() > MAX_SECONDS) {
+            physics.advanceTo(MAX_SECONDS);
+        }
+        if (physics.isMoving(cueBall) && cuePoints < MAX_POINTS) {
+            addPoint(cueBall);
+        }
+        if (objectBall >= 0 && physics.isMoving(objectBall) && objectPoints < MAX_POINTS) {
+            addPoint(objectBall);
+        }
+    }
+
+    @Override
+    public void eventHandled(PoolPhysics physics, int type, int ball, int other) {
+        if (type == PoolPhysics.BALL && objectBall < 0 && (ball == cueBall || other == cueBall)) {
+            objectBall = ball == cueBall ? other : ball;
+            ghostX = physics.getX(cueBall);
+            ghostY = physics.getY(cueBall);
+        }
+        if (ball == cueBall || other == cueBall) {
+            addPoint(cueBall);
+        }
+        if (objectBall >= 0 && (ball == objectBall || other == objectBall)) {
+            addPoint(objectBall);
+        }
+    }
+
+    int getCuePointCount() {
+        return cuePoints;
+    }
+
+    double getCueX(int point) {
+        return cuePath[2 * point];
+    }
+
+    double getCueY(int point) {
+        return cuePath[2 * point + 1];
+    }
+
+    // Returns the first ball the cue ball hits, or -1 if it doesn't hit one
+    int getObjectBall() {
+        return objectBall;
+    }
+
+    int getObjectPointCount() {
+        return objectPoints;
+    }
+
+    double getObjectX(int point) {
+        return objectPath[2 * point];
+    }
+
+    double getObjectY(int point) {
+        return objectPath[2 * point + 1];
+    }
+
+    // Returns the x coordinate of the ghost ball: where the centre of the cue ball is when it hits the object ball.
+    // Only meaningful if there is an object ball.
+    double getGhostX() {
+        return ghostX;
+    }
+
+    double getGhostY() {
+        return ghostY;
+    }
+
+    // Returns true once neither path can get any longer
+    private boolean isDone() {
+        boolean cueDone = cuePoints == MAX_POINTS || !physics.isMoving(cueBall);
+        boolean objectDone = objectBall >= 0 && (objectPoints == MAX_POINTS || !physics.isMoving(objectBall));
+        return cueDone && (objectBall < 0 || objectDone);
+    }
+
+    // Adds where a ball is now to the end of its path, unless the path is full or the ball hasn't moved since the
+    // last point, as happens when it is caught up in several collisions at once
+    private void addPoint(int ball) {
+        double[] path = ball == cueBall ? cuePath : objectPath;
+        int points = ball == cueBall ? cuePoints : objectPoints;
+        double x = physics.getX(ball);
+        double y = physics.getY(ball);
+        if (points == MAX_POINTS ||
+                (points > 0 && Math.abs(x - path[2 * points - 2]) < SAME_POINT &&
+                        Math.abs(y - path[2 * points - 1]) < SAME_POINT)) {
+            return;
+        }
+        path[2 * points] = x;
+        path[2 * points + 1] = y;
+        if (ball == cueBall) {
+            cuePoints++;
+        }
+        else {
+            objectPoints++;
+        }
+    }
+
+}
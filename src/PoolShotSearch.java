@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// This class is the computer's Pool player. It tries out thousands of shots, each simulated to the end on a copy of
+// the table and judged by PoolRules, scores the outcome, and plays the best one found before its time runs out. Shots are tried
+// on every core at once, each thread with its own copy of the table that is reused from shot to shot, so trying a
+// shot allocates nothing. Half the shots are aimed to send an object ball towards a pocket by hitting it at the
+// ghost-ball point, and the rest go in random directions, which finds the odd bank and combination shot.
+class PoolShotSearch {
+
+    // Shots are tried at speeds between these, in m/s. The fastest matches the power slider of PoolTable.
+    static final double MIN_SPEED = 0.3;
+    static final double MAX_SPEED = 5;
+
+    // The centre of each pocket, in meters, which balls are aimed at
+    private static final double[][] POCKET_TARGETS = new double[PoolGeometry.POCKET_X.length][];
+
+    static {
+        for (int i = 0 ; i < POCKET_TARGETS.length ; i++) {
+            POCKET_TARGETS[i] = new double[] {
+                    PoolGeometry.POCKET_X[i] / PoolGeometry.PIXELS_PER_METER,
+                    PoolGeometry.POCKET_Y[i] / PoolGeometry.PIXELS_PER_METER
+            };
+        }
+    }
+
+    private static final double BALL_DIAMETER = 2 * PoolGeometry.BALL_RADIUS / PoolGeometry.PIXELS_PER_METER;
+
+    // What a shot that wins or loses the game, and a shot that fouls, count for against a ball of one's own group
+    private static final double GAME_SCORE = 100;
+    private static final double FOUL_PENALTY = 3;
+
+    private final int threads;
+    private final ExecutorService executor;
+
+    // Each thread's copy of the table, kept from one search to the next, and what it collects of each shot for the
+    // rules
+    private final ThreadLocal<PoolPhysics> scratch = ThreadLocal.withInitial(PoolPhysics::new);
+    private final ThreadLocal<PoolRules.Shot> scratchEvents = ThreadLocal.withInitial(PoolRules.Shot::new);
+
+    private final SplittableRandom random;
+    private volatile long shotsTried;
+
+    PoolShotSearch() {
+        this(Runtime.getRuntime().availableProcessors(), new SplittableRandom());
+    }
+
+    PoolShotSearch(int threads, SplittableRandom random) {
+        this.threads = threads;
+        this.random = random;
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Pool shot search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Returns the number of shots tried in the last search
+    long getShotsTried() {
+        return shotsTried;
+    }
+
+    // Returns the best shot found for cueBall on table, which must have every ball at rest, for the player to shoot
+    // in rules, trying shots until System.nanoTime() passes deadline
+    PoolShot chooseShot(PoolPhysics table, long rules, int cueBall, long deadline) throws InterruptedException {
+        // Each thread works on its own copy, so the table passed in is only read here, before any thread starts
+        PoolPhysics start = new PoolPhysics();
+        start.copyFrom(table);
+        List<Future<Candidate>> searches = new ArrayList<>();
+        for (int t = 0 ; t < threads ; t++) {
+            SplittableRandom threadRandom = random.split();
+            searches.add(executor.submit((Callable<Candidate>) () -> search(start, rules, cueBall, deadline, threadRandom)));
+        }
+        Candidate best = null;
+        long tried = 0;
+        try {
+            for (Future<Candidate> search : searches) {
+                Candidate candidate = search.get();
+                tried += candidate.tried;
+                if (best == null || candidate.score > best.score) {
+                    best = candidate;
+                }
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            for (Future<Candidate> search : searches) {
+                search.cancel(true);
+            }
+        }
+        shotsTried = tried;
+        return new PoolShot(best.direction, best.speed);
+    }
+
+    // Stops the search threads
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Tries shots on this thread until the deadline, and returns the best one. At least one shot is always tried.
+    private Candidate search(PoolPhysics start, long rules, int cueBall, long deadline, SplittableRandom random) {
+        PoolPhysics table = scratch.get();
+        PoolRules.Shot events = scratchEvents.get();
+        table.setListener(events);
+        Candidate best = new Candidate();
+        best.score = Double.NEGATIVE_INFINITY;
+        do {
+            tryShot(start, rules, table, events, cueBall, random, best);
+        } while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted());
+        return best;
+    }
+
+    // Returns the best of a fixed number of shots for cueBall on start, for the player to shoot in rules, tried one
+    // after another on the calling thread, with table as the copy each is played out on and events listening to it.
+    // Unlike a timed search, the shot chosen depends only on random, so a caller running many tables at once gets the
+    // same shots however busy the machine is.
+    static PoolShot chooseShot(PoolPhysics start, long rules, PoolPhysics table, PoolRules.Shot events, int cueBall,
+                               int tries, SplittableRandom random) {
+        table.setListener(events);
+        Candidate best = new Candidate();
+        best.score = Double.NEGATIVE_INFINITY;
+        for (int i = 0 ; i < Math.max(tries, 1) ; i++) {
+            tryShot(start, rules, table, events, cueBall, random, best);
+        }
+        return new PoolShot(best.direction, best.speed);
+    }
+
+    // Plays out one shot chosen at random on table, a copy of start, and keeps it in best if it scores higher
+    private static void tryShot(PoolPhysics start, long rules, PoolPhysics table, PoolRules.Shot events, int cueBall,
+                                SplittableRandom random, Candidate best) {
+        double direction;
+        int target = random.nextInt(start.getBallCount());
+        if (random.nextBoolean() && target != cueBall && !start.isSunk(target)) {
+            double[] pocket = POCKET_TARGETS[random.nextInt(POCKET_TARGETS.length)];
+            direction = ghostBallDirection(start, cueBall, target, pocket) + random.nextDouble(-0.01, 0.01);
+        }
+        else {
+            direction = random.nextDouble(-Math.PI, Math.PI);
+        }
+        double speed = random.nextDouble(MIN_SPEED, MAX_SPEED);
+        table.copyFrom(start);
+        events.reset();
+        table.shoot(cueBall, speed, direction);
+        table.advanceToRest();
+        double score = score(rules, events, table);
+        if (score > best.score) {
+            best.score = score;
+            best.direction = direction;
+            best.speed = speed;
+        }
+        best.tried++;
+    }
+
+    // Returns the direction to strike the cue ball in so that it hits target at the ghost-ball point, where its
+    // centre is one ball's width behind target on the line from pocket
+    private static double ghostBallDirection(PoolPhysics table, int cueBall, int target, double[] pocket) {
+        double dx = table.getX(target) - pocket[0];
+        double dy = table.getY(target) - pocket[1];
+        double length = Math.sqrt(dx * dx + dy * dy);
+        double ghostX = table.getX(target) + dx / length * BALL_DIAMETER;
+        double ghostY = table.getY(target) + dy / length * BALL_DIAMETER;
+        return Math.atan2(ghostY - table.getY(cueBall), ghostX - table.getX(cueBall));
+    }
+
+    // Scores a shot by the rules, from the state of the game before it and what happened in it, with after the table
+    // once the balls have stopped: winning or losing the game outweighs everything else, a foul costs a few balls,
+    // and each ball of the shooter's group pocketed scores a point, or any ball but the 8 on an open table. Leaving
+    // the shooter's balls close to pockets scores a little, to break ties between shots that pocket nothing.
+    static double score(long rules, PoolRules.Shot events, PoolPhysics after) {
+        int shooter = PoolRules.getShooter(rules);
+        long next = PoolRules.afterShot(rules, events);
+        int winner = PoolRules.getWinner(next);
+        if (winner != PoolRules.NO_WINNER) {
+            return winner == shooter ? GAME_SCORE : -GAME_SCORE;
+        }
+        int own = PoolRules.getTargets(rules, shooter) & ~(1 << PoolRules.EIGHT_BALL);
+        double score = Integer.bitCount(events.getPocketed() & own);
+        if (PoolRules.getFoul(next) != PoolRules.NO_FOUL) {
+            score -= FOUL_PENALTY;
+        }
+        double distances = 0;
+        int targets = PoolRules.getTargets(next, shooter);
+        for (int i = 0 ; i < after.getBallCount() ; i++) {
+            if ((targets & 1 << i) != 0 && !after.isSunk(i)) {
+                double nearest = Double.POSITIVE_INFINITY;
+                for (double[] pocket : POCKET_TARGETS) {
+                    nearest = Math.min(nearest, Math.hypot(after.getX(i) - pocket[0], after.getY(i) - pocket[1]));
+                }
+                distances += nearest;
+            }
+        }
+        return score - 0.01 * distances;
+    }
+
+    // The best shot found by one thread
+    private static final class Candidate {
+        private double score;
+        private double direction;
+        private double speed;
+        private long tried;
+    }
+
+    // Has the computer break and then play both sides of a game by itself, reporting each shot and how many shots
+    // it tried
+    public static void main(String[] args) throws InterruptedException {
+        long millisPerShot = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        PoolShotSearch search = new PoolShotSearch(Runtime.getRuntime().availableProcessors(), new SplittableRandom(1));
+        PoolPhysics table = PoolPhysics.newRack();
+        PoolRules.Shot events = new PoolRules.Shot();
+        table.setListener(events);
+        long rules = PoolRules.newGame();
+        int cueBall = BallNumber.CUE_BALL.ordinal();
+        for (int shot = 1 ; shot <= PoolSimulation.MAX_SHOTS ; shot++) {
+            if (table.isSunk(cueBall) || PoolRules.hasBallInHand(rules)) {
+                table.setSunk(cueBall, false);
+                PoolSimulation.placeCueBall(table);
+            }
+            long start = System.nanoTime();
+            PoolShot best = search.chooseShot(table, rules, cueBall, start + millisPerShot * 1_000_000);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            int player = PoolRules.getShooter(rules);
+            events.reset();
+            table.shoot(cueBall, best.getSpeed(), best.getDirection());
+            table.advanceToRest();
+            rules = PoolRules.afterShot(rules, events);
+            System.out.printf("Shot %2d by player %d: %s, %,d shots tried (%,.0f shots/s), foul %d%n", shot,
+                    player + 1, best, search.getShotsTried(), search.getShotsTried() / seconds,
+                    PoolRules.getFoul(rules));
+            if (PoolRules.getWinner(rules) != PoolRules.NO_WINNER) {
+                System.out.println("Player " + (PoolRules.getWinner(rules) + 1) + " wins");
+                break;
+            }
+        }
+        search.shutdown();
+    }
+
+}
@@ -0,0 +1,331 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// This class plays many games of Pool at once with no window, for training the computer player and for checking the
+// balance of the game. Each table is a game of 8-ball from the break, judged by PoolRules, and played on its own task
+// with its own PoolPhysics, so tables share nothing and run on every core. Each shot is chosen by a Shooter, which
+// can play a script, random shots or the computer player's search. As each game ends, its shots are written to a
+// file of comma separated values, one row per shot, with the shot, the balls it pocketed, the foul if any and where
+// every ball came to rest. Nothing here touches JavaFX.
+//
+// Every table draws its shots from its own random numbers, split off in order from one seed, so a run can be
+// repeated exactly whatever the number of threads; only the order the games are written in changes.
+final class PoolSimulation {
+
+    // A game that goes this many shots without a winner is stopped and counted as unfinished
+    static final int MAX_SHOTS = 200;
+
+    // The number of shots the computer player tries for each shot it plays, unless told otherwise
+    static final int DEFAULT_TRIES = 64;
+
+    private static final int CUE_BALL = BallNumber.CUE_BALL.ordinal();
+
+    // Where the cue ball is put back after it has been pocketed, in meters, and how far it is moved towards the end
+    // of the table at a time when another ball is in the way
+    private static final double HEAD_SPOT_X = PoolGeometry.rackX(BallNumber.CUE_BALL) / PoolGeometry.PIXELS_PER_METER;
+    private static final double HEAD_SPOT_Y = PoolGeometry.rackY(BallNumber.CUE_BALL) / PoolGeometry.PIXELS_PER_METER;
+    private static final double PLACEMENT_STEP = PoolPhysics.CONTACT_DISTANCE;
+
+    private PoolSimulation() {
+    }
+
+    // Chooses the shots of the games. One shooter plays every table at once, so it must be safe to call from many
+    // threads.
+    interface Shooter {
+
+        // Returns the shot to play on table, whose balls are all at rest, for the player to shoot in rules. shot
+        // counts the shots of the game from 0 for the break. random belongs to the table being played, and is the
+        // only source of chance a shooter may use, so that games repeat from run to run.
+        PoolShot nextShot(PoolPhysics table, long rules, int shot, SplittableRandom random);
+
+    }
+
+    // Returns a shooter that strikes the cue ball in a random direction at a random speed
+    static Shooter randomShooter() {
+        return (table, rules, shot, random) -> new PoolShot(random.nextDouble(-Math.PI, Math.PI),
+                random.nextDouble(PoolShotSearch.MIN_SPEED, PoolShotSearch.MAX_SPEED));
+    }
+
+    // Returns a shooter that plays the shots of script in order, starting again from the first when it runs out
+    static Shooter scriptedShooter(List<PoolShot> script) {
+        if (script.isEmpty()) {
+            throw new IllegalArgumentException("A script needs at least one shot");
+        }
+        PoolShot[] shots = script.toArray(new PoolShot[0]);
+        return (table, rules, shot, random) -> shots[shot % shots.length];
+    }
+
+    // Returns a shooter that plays the best of tries shots found by the computer player's search. The shots are
+    // tried on the thread playing the table, each thread with its own copy of the table to try them on.
+    static Shooter searchingShooter(int tries) {
+        ThreadLocal<PoolPhysics> scratch = ThreadLocal.withInitial(PoolPhysics::new);
+        ThreadLocal<PoolRules.Shot> events = ThreadLocal.withInitial(PoolRules.Shot::new);
+        return (table, rules, shot, random) -> PoolShotSearch.chooseShot(table, rules, scratch.get(), events.get(),
+                CUE_BALL, tries, random);
+    }
+
+    // Reads a script of shots from file, one to a line, each written as its direction in radians and its speed in
+    // m/s separated by a comma. Blank lines and lines starting with # are skipped.
+    static List<PoolShot> readScript(File file) throws IOException {
+        List<PoolShot> script = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != 2) {
+                    throw new IOException("Expected direction,speed but found " + line);
+                }
+                script.add(new PoolShot(Double.parseDouble(fields[0].trim()), Double.parseDouble(fields[1].trim())));
+            }
+        }
+        return script;
+    }
+
+    // How one game ended
+    static final class Game {
+        private final int table;
+        private final int shots;
+        private final int winner;
+        private final int fouls;
+
+        private Game(int table, int shots, int winner, int fouls) {
+            this.table = table;
+            this.shots = shots;
+            this.winner = winner;
+            this.fouls = fouls;
+        }
+
+        int getTable() {
+            return table;
+        }
+
+        int getShots() {
+            return shots;
+        }
+
+        // Returns the player who won, or PoolRules.NO_WINNER if the game was stopped after MAX_SHOTS
+        int getWinner() {
+            return winner;
+        }
+
+        int getFouls() {
+            return fouls;
+        }
+    }
+
+    // Returns the header row of the file games are written to
+    static String header() {
+        StringBuilder header = new StringBuilder("table,shot,player,direction,speed,first hit,pocketed,foul,winner");
+        for (BallNumber ball : BallNumber.values()) {
+            header.append(",x").append(ball.ordinal()).append(",y").append(ball.ordinal());
+        }
+        return header.toString();
+    }
+
+    // Plays one game on its own table from the break until someone wins or MAX_SHOTS have been played, appending a
+    // row for each shot to rows
+    static Game play(int tableNumber, Shooter shooter, SplittableRandom random, StringBuilder rows) {
+        PoolPhysics table = PoolPhysics.newRack();
+        PoolRules.Shot events = new PoolRules.Shot();
+        table.setListener(events);
+        long rules = PoolRules.newGame();
+        int shots = 0;
+        int fouls = 0;
+        while (shots < MAX_SHOTS && PoolRules.getWinner(rules) == PoolRules.NO_WINNER) {
+            // A player with the cue ball in hand always puts it down on the head spot, or as near it as they can
+            if (table.isSunk(CUE_BALL) || PoolRules.hasBallInHand(rules)) {
+                table.setSunk(CUE_BALL, false);
+                placeCueBall(table);
+            }
+            int player = PoolRules.getShooter(rules);
+            PoolShot shot = shooter.nextShot(table, rules, shots, random);
+            events.reset();
+            table.shoot(CUE_BALL, shot.getSpeed(), shot.getDirection());
+            table.advanceToRest();
+            rules = PoolRules.afterShot(rules, events);
+            fouls += PoolRules.getFoul(rules) != PoolRules.NO_FOUL ? 1 : 0;
+            appendRow(rows, tableNumber, shots, player, shot, events, rules, table);
+            shots++;
+        }
+        return new Game(tableNumber, shots, PoolRules.getWinner(rules), fouls);
+    }
+
+    // Puts the cue ball down on the head spot, or if another ball is there, at the first free place on the cloth
+    // found moving from it towards the head of the table and then up and down it. Throws an IllegalStateException if
+    // there is no free place left on that side of the head spot.
+    static void placeCueBall(PoolPhysics table) {
+        for (int step = 0 ; ; step++) {
+            boolean onCloth = false;
+            for (int side = -step ; side <= step ; side++) {
+                double x = HEAD_SPOT_X - (step - Math.abs(side)) * PLACEMENT_STEP;
+                double y = HEAD_SPOT_Y + side * PLACEMENT_STEP;
+                if (table.isOnCloth(x, y)) {
+                    onCloth = true;
+                    if (table.isFree(CUE_BALL, x, y)) {
+                        table.place(CUE_BALL, x, y);
+                        return;
+                    }
+                }
+            }
+            if (!onCloth) {
+                throw new IllegalStateException("There is nowhere free to put the cue ball down");
+            }
+        }
+    }
+
+    private static void appendRow(StringBuilder rows, int tableNumber, int shotNumber, int player, PoolShot shot,
+                                  PoolRules.Shot events, long rules, PoolPhysics table) {
+        rows.append(tableNumber).append(',').append(shotNumber).append(',').append(player).append(',');
+        appendFixed(rows, shot.getDirection(), 6);
+        rows.append(',');
+        appendFixed(rows, shot.getSpeed(), 4);
+        rows.append(',').append(events.getFirstHit()).append(',');
+        int pocketed = events.getPocketed();
+        for (int ball = 0 ; pocketed >>> ball != 0 ; ball++) {
+            if ((pocketed & 1 << ball) != 0) {
+                rows.append(ball).append((pocketed >>> ball + 1) != 0 ? " " : "");
+            }
+        }
+        rows.append(',').append(PoolRules.getFoul(rules)).append(',').append(PoolRules.getWinner(rules));
+        for (int ball = 0 ; ball < table.getBallCount() ; ball++) {
+            if (table.isSunk(ball)) {
+                rows.append(",,");
+            }
+            else {
+                rows.append(',');
+                appendFixed(rows, table.getX(ball), 5);
+                rows.append(',');
+                appendFixed(rows, table.getY(ball), 5);
+            }
+        }
+        rows.append(System.lineSeparator());
+    }
+
+    // Appends value rounded to the given number of decimal places. Writing the rows is a large part of the cost of a
+    // game, and this takes a fraction of the time String.format does.
+    private static void appendFixed(StringBuilder rows, double value, int decimals) {
+        long scale = 1;
+        for (int i = 0 ; i < decimals ; i++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            rows.append('-');
+        }
+        rows.append(scaled / scale).append('.');
+        long fraction = scaled % scale;
+        for (long digit = scale / 10 ; digit > fraction && digit > 1 ; digit /= 10) {
+            rows.append('0');
+        }
+        rows.append(fraction);
+    }
+
+    // Plays games on the given number of tables, on a pool of threads, writing each game's rows to out as soon as it
+    // ends, and returns how every game ended, in table order
+    static List<Game> run(int tables, long seed, Shooter shooter, int threads, PrintWriter out)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Pool simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Future<Game>> games = new ArrayList<>();
+        out.println(header());
+        for (int t = 0 ; t < tables ; t++) {
+            int tableNumber = t;
+            SplittableRandom tableRandom = random.split();
+            games.add(executor.submit(() -> {
+                StringBuilder rows = new StringBuilder();
+                Game game = play(tableNumber, shooter, tableRandom, rows);
+                // Each game is written in one go, so the rows of games ending together aren't interleaved
+                synchronized (out) {
+                    out.print(rows);
+                }
+                return game;
+            }));
+        }
+        List<Game> results = new ArrayList<>();
+        try {
+            for (Future<Game> game : games) {
+                results.add(game.get());
+            }
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+        return results;
+    }
+
+    // Plays games and reports how fast they were played and how they ended. The arguments, all optional, are the
+    // number of tables, the shooter, which is random, search, search:<tries> or the name of a script file, the
+    // number of threads and the seed. The games are written to a file in PoolProfiler.DIRECTORY.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int tables = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String kind = args.length > 1 ? args[1] : "random";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        Shooter shooter;
+        if (kind.equals("random")) {
+            shooter = randomShooter();
+        }
+        else if (kind.equals("search")) {
+            shooter = searchingShooter(DEFAULT_TRIES);
+        }
+        else if (kind.startsWith("search:")) {
+            shooter = searchingShooter(Integer.parseInt(kind.substring("search:".length())));
+        }
+        else {
+            shooter = scriptedShooter(readScript(new File(kind)));
+        }
+
+        File file = new File(PoolProfiler.DIRECTORY, "simulation-" + System.currentTimeMillis() + ".csv");
+        file.getParentFile().mkdirs();
+        List<Game> games;
+        long start = System.nanoTime();
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            games = run(tables, seed, shooter, threads, out);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long shots = 0;
+        long fouls = 0;
+        int[] wins = new int[2];
+        int unfinished = 0;
+        for (Game game : games) {
+            shots += game.getShots();
+            fouls += game.getFouls();
+            if (game.getWinner() == PoolRules.NO_WINNER) {
+                unfinished++;
+            }
+            else {
+                wins[game.getWinner()]++;
+            }
+        }
+        System.out.printf("Played %,d games of %,d shots on %d threads in %.2f s (%,.0f games/s, %,.0f shots/s)%n",
+                tables, shots, threads, seconds, tables / seconds, shots / seconds);
+        System.out.printf("Breaker won %d, other player won %d, %d unfinished after %d shots; %.1f%% of shots " +
+                "were fouls%n", wins[0], wins[1], unfinished, MAX_SHOTS, 100.0 * fouls / Math.max(shots, 1));
+        System.out.println("Wrote games to " + file);
+    }
+
+}
@@ -1,92 +1,190 @@
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.geometry.VPos;
+import javafx.scene.Cursor;
 import javafx.scene.control.Button;
 import javafx.scene.control.Slider;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.Border;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
-import javafx.scene.shape.Polygon;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
-import javafx.util.Duration;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 class PoolTable<vBox> extends Pane {
 
-    static double PIXELS_PER_METER = 200;
-
-    private static final double TABLE_WIDTH = 2.62 * PIXELS_PER_METER;
-    private static final double TABLE_HEIGHT = 1.5 * PIXELS_PER_METER;
-    private static final double PLAYABLE_WIDTH = 2.24 * PIXELS_PER_METER;
-    private static final double PLAYABLE_HEIGHT = 1.12 * PIXELS_PER_METER;
-    static double BUMPER_WIDTH = 0.03 * PIXELS_PER_METER;
-    private static final double CUE_LENGTH = 1.4 * PIXELS_PER_METER;
-    static double POCKET_RADIUS = 0.065 * PIXELS_PER_METER;
-
-    private static final double FELT_WIDTH = PoolTable.PLAYABLE_WIDTH + PoolTable.BUMPER_WIDTH * 2;
-    private static final double FELT_HEIGHT = PoolTable.PLAYABLE_HEIGHT + PoolTable.BUMPER_WIDTH * 2;
-    static double TABLE_PADDING = CUE_LENGTH / 2 + (TABLE_WIDTH - FELT_WIDTH) / 2;
-
-    static double SCENE_WIDTH = TABLE_WIDTH + CUE_LENGTH;
-    static double SCENE_HEIGHT = TABLE_HEIGHT + CUE_LENGTH;
-
-    private static final Circle HOLE_1 = new Circle(TABLE_PADDING, TABLE_PADDING, POCKET_RADIUS, Color.BLACK);
-    private static final Circle HOLE_2 = new Circle(SCENE_WIDTH - TABLE_PADDING, TABLE_PADDING, POCKET_RADIUS, Color.BLACK);
-    private static final Circle HOLE_3 = new Circle(TABLE_PADDING, SCENE_HEIGHT - TABLE_PADDING, POCKET_RADIUS, Color.BLACK);
-    private static final Circle HOLE_4 = new Circle(SCENE_WIDTH - TABLE_PADDING,
-            SCENE_HEIGHT - TABLE_PADDING, POCKET_RADIUS, Color.BLACK);
-    private static final Circle HOLE_5 = new Circle(SCENE_WIDTH / 2,
-            TABLE_PADDING + (BUMPER_WIDTH - POCKET_RADIUS), POCKET_RADIUS, Color.BLACK);
-    private static final Circle HOLE_6 = new Circle(SCENE_WIDTH / 2,
-            SCENE_HEIGHT - TABLE_PADDING - (BUMPER_WIDTH - POCKET_RADIUS), POCKET_RADIUS, Color.BLACK);
-    private static final Circle[] HOLES = new Circle[]{HOLE_1, HOLE_2, HOLE_3, HOLE_4, HOLE_5, HOLE_6};
-
-    private final Rectangle felt = new Rectangle(TABLE_PADDING, TABLE_PADDING, FELT_WIDTH, FELT_HEIGHT);
-    private final Rectangle table = new Rectangle(CUE_LENGTH / 2, CUE_LENGTH / 2, TABLE_WIDTH, TABLE_HEIGHT);
+    // The sizes of the table are kept in PoolGeometry, where the physics can use them without loading JavaFX
+    static final double PIXELS_PER_METER = PoolGeometry.PIXELS_PER_METER;
+
+    static final double BUMPER_WIDTH = PoolGeometry.BUMPER_WIDTH;
+    static final double POCKET_RADIUS = PoolGeometry.POCKET_RADIUS;
+    static final double TABLE_PADDING = PoolGeometry.TABLE_PADDING;
+
+    static final double SCENE_WIDTH = PoolGeometry.SCENE_WIDTH;
+    static final double SCENE_HEIGHT = PoolGeometry.SCENE_HEIGHT;
+
+    // Draws the table, balls, cue, preview and profiler overlay, all onto one canvas under the controls
+    private final PoolRenderer renderer = new PoolRenderer();
 
     private boolean inMotion = true;
 
+    // The state of the game by the rules of 8-ball, which is moved on after each shot by judging the shot's events
+    // as recorded in its replay
+    private long rules = PoolRules.newGame();
+    private final PoolRules.Shot shotEvents = new PoolRules.Shot();
+
     private boolean cueBallLocationPicked;
 
-    private final Polygon cue = new Polygon();
-    private final Polygon cueOverlay = new Polygon();
+    // While the cue ball is being put back after a scratch, it is hidden until the mouse first puts it down
+    private boolean cueBallHidden;
+
+    // Whether the cue and preview are up, while a shot is lined up
+    private boolean aiming;
+
+    // The paths the cue ball and the first ball it hits would take, and the ghost ball showing where the cue ball
+    // is when they meet. The preview is worked out at most once a frame, however often the mouse moves, and until a
+    // strength is chosen it shows a shot at PREVIEW_SPEED.
+    private static final double PREVIEW_SPEED = 2;
+    private final PoolShotPreview preview = new PoolShotPreview();
+    private boolean previewOutOfDate;
     private final Text message = new Text("Welcome to 8-ball Pool");
-    private final Text hint = new Text("Try to sink the cue ball");
+    private final Text hint = new Text("Break the rack");
     private double angle;
     private boolean angleChosen;
     private boolean shotStrengthChosen;
 
     private final Slider powerSlider = new Slider(0, 5, 0);
     private final Button launchButton = new Button("Take shot");
-    private final VBox shotDecider = new VBox(powerSlider, launchButton);
+
+    // Where the cue strikes the cue ball, picked by clicking on a picture of the ball, as offsets from its centre to
+    // the right and up in fractions of its radius. The tip is kept within MAX_TIP_OFFSET of the centre, past which a
+    // real cue would slip off the ball.
+    private static final double MAX_TIP_OFFSET = 0.5;
+    private static final double TIP_PICKER_RADIUS = 30;
+    private final Circle tipPickerBall = new Circle(TIP_PICKER_RADIUS, TIP_PICKER_RADIUS, TIP_PICKER_RADIUS,
+            Color.WHITE);
+    private final Circle tipMark = new Circle(TIP_PICKER_RADIUS, TIP_PICKER_RADIUS, 4, Color.RED);
+    private final Pane tipPicker = new Pane(tipPickerBall, tipMark);
+    private double tipX;
+    private double tipY;
+
+    private final VBox shotDecider = new VBox(tipPicker, powerSlider, launchButton);
+    private final Button computerButton = new Button("Computer shot");
     private final BorderPane controlPane = new BorderPane(null, message, null, hint, null);
 
     // Holds all balls involved in the game
     private final ArrayList<PoolBall> allBalls;
 
-    // Holds all balls currently unsunk
-    private final ArrayList<PoolBall> unsunkBalls;
-
-    private final Timeline animation;
+    // If a frame comes later than this, for example while the window is being dragged, the simulation only moves on
+    // by this much rather than jumping ahead
+    private static final long MAX_FRAME_NANOS = 250_000_000;
+
+    // Holds the state of every ball and moves them
+    private final PoolPhysics physics = PoolPhysics.newRack();
+
+    // When the last frame was drawn, by System.nanoTime(). Only frames are timed by the wall clock: the physics
+    // runs on its own simulated time.
+    private long lastFrameNanos;
+
+    // The only loop driving the table: each frame advances the physics, then checks on the state of the game. It runs
+    // on JavaFX's pulse, which is in step with the display, so the balls move once per screen refresh. The physics
+    // knows exactly where every ball is at any moment, so each frame shows the balls where they are at that frame's
+    // time rather than snapping them to a fixed tick. The loop stops altogether while nothing is moving and the
+    // preview is up to date, and is woken again by wake().
+    private final AnimationTimer animation = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frame();
+        }
+    };
+    private boolean animating;
+
+    // Measures every frame, and shows what it measured over the table while the overlay is switched on. The overlay
+    // is only redrawn every OVERLAY_NANOS so that redrawing it doesn't show up in what it measures.
+    private static final long OVERLAY_NANOS = 500_000_000;
+    private final PoolProfiler profiler = new PoolProfiler();
+    private long lastOverlayNanos;
+    private boolean profilerShown;
+    private boolean profilerUsed;
+
+    // The last shot taken, which can be watched again while the next is lined up. R starts and stops the replay, the
+    // left and right arrow keys play it backwards and forwards, and the up and down arrow keys speed it up and slow it
+    // down. The replay is recorded apart from the physics, so watching it leaves the game as it was.
+    private static final double MAX_REPLAY_SPEED = 16;
+    private final PoolReplay replay = new PoolReplay();
+    private boolean replayRecorded;
+    private boolean replaying;
+    private double replayTime;
+    private double replaySpeed;
+    private long replayMessageTenths = -1;
+    private double replayMessageSpeed;
+
+    // How long the computer spends looking for a shot
+    private static final long COMPUTER_TIME_BUDGET_MILLIS = 1000;
+
+    // The computer thinks on this thread so that the window stays responsive. The thread is a daemon so that it
+    // never keeps the program running after the window closes.
+    private final ExecutorService computerThread = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Pool computer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final PoolShotSearch shotSearch = new PoolShotSearch();
+
+    // The link to the other player's copy of the game, when playing against someone in another window, or null when
+    // both players share this one. Only the other player's shots come over the link, and the hashes that check the
+    // two tables are still the same; each side plays every shot on its own table. The link blocks while it waits for
+    // the other side, so it is only used on networkThread, which keeps the messages in the order the shots are
+    // played.
+    private final PoolLockstep link;
+    private final ExecutorService networkThread = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Pool network");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean linkBroken;
+
+    // The hash of the table and the game as they were when the balls last came to rest, which the other side checks
+    private int restHash;
+
+    // Whether the shot being played, or last played, was taken in this window, and whether the cue ball was in hand
+    // for it, in which case the other side is told where it was put down
+    private boolean shotLocal;
+    private boolean cueBallInHand;
+
+    // Something done with the link on networkThread
+    private interface NetworkTask {
+        void run() throws IOException;
+    }
 
     PoolTable() {
+        this(null);
+    }
+
+    // Makes a table to play against the player at the other end of link
+    PoolTable(PoolLockstep link) {
         super();
+        this.link = link;
 
         shotDecider.setAlignment(Pos.CENTER);
         shotDecider.setSpacing(10);
         shotDecider.setPadding(new Insets(0,30,0,0));
+        BorderPane.setAlignment(computerButton, Pos.CENTER);
+        BorderPane.setMargin(computerButton, new Insets(0, 0, 0, 30));
 
         controlPane.setPrefWidth(SCENE_WIDTH);
         controlPane.setPrefHeight(SCENE_HEIGHT);
@@ -102,213 +200,487 @@ class PoolTable<vBox> extends Pane {
         hint.setFont(new Font(35));
         hint.setTextOrigin(VPos.TOP);
 
-        felt.setArcHeight(25);
-        felt.setArcWidth(25);
-        table.setArcHeight(30);
-        table.setArcWidth(30);
-
-        felt.setFill(new Color(39 / 255.0, 178 / 255.0, 115 / 255.0, 1));
-        table.setFill(Color.SADDLEBROWN);
-
-        felt.setStrokeWidth(0);
-        table.setStrokeWidth(0);
-
-        super.getChildren().addAll(table, felt, controlPane);
-
-        super.getChildren().addAll(HOLES);
-
-        Polygon topBumper1 = new Polygon(
-                TABLE_PADDING + BUMPER_WIDTH * 2, TABLE_PADDING,
-                TABLE_PADDING + BUMPER_WIDTH * 3, TABLE_PADDING + BUMPER_WIDTH,
-                SCENE_WIDTH / 2 - POCKET_RADIUS, TABLE_PADDING + BUMPER_WIDTH,
-                SCENE_WIDTH / 2 - POCKET_RADIUS + BUMPER_WIDTH, TABLE_PADDING
-        );
-        Polygon topBumper2 = new Polygon(
-                SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 2), TABLE_PADDING,
-                SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 3), TABLE_PADDING + BUMPER_WIDTH,
-                SCENE_WIDTH / 2 + POCKET_RADIUS, TABLE_PADDING + BUMPER_WIDTH,
-                SCENE_WIDTH / 2 + POCKET_RADIUS - BUMPER_WIDTH, TABLE_PADDING
-        );
-        Polygon bottomBumper1 = new Polygon(
-                TABLE_PADDING + BUMPER_WIDTH * 2, SCENE_HEIGHT - TABLE_PADDING,
-                TABLE_PADDING + BUMPER_WIDTH * 3, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
-                SCENE_WIDTH / 2 - POCKET_RADIUS, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
-                SCENE_WIDTH / 2 - POCKET_RADIUS + BUMPER_WIDTH, SCENE_HEIGHT - TABLE_PADDING
-        );
-        Polygon bottomBumper2 = new Polygon(
-                SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 2), SCENE_HEIGHT - TABLE_PADDING,
-                SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH * 3), SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
-                SCENE_WIDTH / 2 + POCKET_RADIUS, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH),
-                SCENE_WIDTH / 2 + POCKET_RADIUS - BUMPER_WIDTH, SCENE_HEIGHT - TABLE_PADDING
-        );
-        Polygon leftBumper = new Polygon(
-                TABLE_PADDING, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 2),
-                TABLE_PADDING, TABLE_PADDING + BUMPER_WIDTH * 2,
-                TABLE_PADDING + BUMPER_WIDTH, TABLE_PADDING + BUMPER_WIDTH * 3,
-                TABLE_PADDING + BUMPER_WIDTH, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 3)
-        );
-        Polygon rightBumper = new Polygon(
-                SCENE_WIDTH - TABLE_PADDING, SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 2),
-                SCENE_WIDTH - TABLE_PADDING, TABLE_PADDING + BUMPER_WIDTH * 2,
-                SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH), TABLE_PADDING + BUMPER_WIDTH * 3,
-                SCENE_WIDTH - (TABLE_PADDING + BUMPER_WIDTH), SCENE_HEIGHT - (TABLE_PADDING + BUMPER_WIDTH * 3)
-        );
-        Polygon[] bumpers = new Polygon[] {
-                topBumper1, topBumper2, bottomBumper1, bottomBumper2, leftBumper, rightBumper
-        };
-        for (Polygon bumper : bumpers) {
-            bumper.setFill(new Color(36 / 255.0, 136 / 255.0, 78 / 255.0, 1));
-        }
-        super.getChildren().addAll(bumpers);
-
-        animation = new Timeline(new KeyFrame(Duration.millis(25), e-> {
-            if (inMotion) {
-                update();
-            }
-        }));
-        animation.setCycleCount(Timeline.INDEFINITE);
-        animation.play();
-
-//        BallNumber[] ballNumbers = {BallNumber.CUE_BALL, BallNumber.B1, BallNumber.B2,
-//                BallNumber.B3, BallNumber.B4, BallNumber.B5, BallNumber.B6,
-//                BallNumber.B7, BallNumber.B8, BallNumber.B9, BallNumber.B10,
-//                BallNumber.B11, BallNumber.B12, BallNumber.B13, BallNumber.B14,
-//                BallNumber.B15};
+        powerSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            previewOutOfDate = true;
+            wake();
+        });
+        tipPickerBall.setStroke(Color.BLACK);
+        tipPicker.setMaxSize(2 * TIP_PICKER_RADIUS, 2 * TIP_PICKER_RADIUS);
+        tipPicker.setOnMousePressed(e -> pickTip(e.getX(), e.getY()));
+        tipPicker.setOnMouseDragged(e -> pickTip(e.getX(), e.getY()));
 
-        BallNumber[] ballNumbers = {BallNumber.CUE_BALL};
+        super.getChildren().addAll(renderer.getCanvas(), controlPane);
 
         allBalls = new ArrayList<>();
-        unsunkBalls = new ArrayList<>();
-
-        Color[] ballColors = {Color.WHITE,
-                new Color(244 / 255.0, 150 / 255.0, 4 / 255.0, 1),
-                new Color(1 / 255.0, 1 / 255.0, 128 / 255.0, 1),
-                new Color(216 / 255.0, 0 / 255.0, 0, 1),
-                new Color(77 / 255.0, 1 / 255.0, 117 / 255.0, 1),
-                new Color(246 / 255.0, 93 / 255.0, 4 / 255.0, 1),
-                new Color(4 / 255.0, 81 / 255.0, 4 / 255.0, 1),
-                new Color(129 / 255.0, 1 / 255.0, 30 / 255.0, 1),
-                Color.BLACK};
-
-        for (BallNumber ballNumber : ballNumbers) {
-            double x = Math.random() * (PLAYABLE_WIDTH - BUMPER_WIDTH * 2  - PoolBall.BALL_RADIUS) +
-                    TABLE_PADDING + BUMPER_WIDTH + PoolBall.BALL_RADIUS;
-            double y = Math.random() * (PLAYABLE_HEIGHT - BUMPER_WIDTH * 2 - PoolBall.BALL_RADIUS) +
-                    TABLE_PADDING + BUMPER_WIDTH + PoolBall.BALL_RADIUS;
-            PoolBall ball = new PoolBall(x, y, ballNumber);
-            ball.setStrokeWidth(4);
-//            ball.setSpeed(0.5);
+
+        // Each ball is racked by the physics, and numbered there by the ordinal of its BallNumber
+        for (BallNumber ballNumber : BallNumber.values()) {
+            PoolBall ball = new PoolBall(physics, ballNumber.ordinal(), ballNumber);
             allBalls.add(ball);
-            unsunkBalls.add(ball);
-//            super.getChildren().add(ball.getBallPath());
         }
 
-        for (int i = 0 ; i < allBalls.size() ; i++) {
-            if (i < 9) {
-                allBalls.get(i).setFill(ballColors[i]);
-                allBalls.get(i).setStroke(ballColors[i]);
-            }
-            else {
-                allBalls.get(i).setFill(Color.WHITE);
-                allBalls.get(i).setStroke(ballColors[i - 8]);
-            }
+        wake();
+    }
+
+    // Starts the animation loop if it has stopped. The clock starts from now, so the time spent idle is skipped.
+    private void wake() {
+        if (!animating) {
+            animating = true;
+            lastFrameNanos = System.nanoTime();
+            animation.start();
+        }
+    }
+
+    // Handles a key pressed anywhere in the window, returning true if it was used
+    boolean handleKey(KeyCode code) {
+        switch (code) {
+            case F3:
+                toggleProfiler();
+                return true;
+            case R:
+                if (replaying) {
+                    stopReplay();
+                    return true;
+                }
+                if (replayRecorded && !inMotion && !angleChosen) {
+                    startReplay();
+                    return true;
+                }
+                return false;
+            case LEFT:
+            case RIGHT:
+                if (!replaying) {
+                    return false;
+                }
+                // Playing on from an end it has already reached starts the replay again from the other end
+                replaySpeed = code == KeyCode.LEFT ? -Math.abs(replaySpeed) : Math.abs(replaySpeed);
+                if (replaySpeed > 0 && replayTime >= replay.getDuration()) {
+                    replayTime = 0;
+                }
+                else if (replaySpeed < 0 && replayTime <= 0) {
+                    replayTime = replay.getDuration();
+                }
+                wake();
+                return true;
+            case UP:
+            case DOWN:
+                if (!replaying) {
+                    return false;
+                }
+                double factor = code == KeyCode.UP ? 2 : 0.5;
+                replaySpeed = Math.copySign(Math.max(1 / MAX_REPLAY_SPEED,
+                        Math.min(MAX_REPLAY_SPEED, Math.abs(replaySpeed) * factor)), replaySpeed);
+                wake();
+                return true;
+            default:
+                return false;
         }
+    }
 
-        super.getChildren().addAll(allBalls);
+    // Shows or hides the profiler overlay
+    void toggleProfiler() {
+        profilerShown = !profilerShown;
+        profilerUsed = true;
+        renderer.setOverlay(profilerShown ? profiler.summary() : null);
+        wake();
     }
 
-    private void update() {
-        for (PoolBall ball : allBalls) {
-            if (ball.isSunk()) {
-                super.getChildren().remove(ball);
-                unsunkBalls.remove(ball);
+    // Returns true if the profiler overlay has been shown at any point, which is when the profile is worth keeping
+    boolean wasProfilerShown() {
+        return profilerUsed;
+    }
+
+    PoolProfiler getProfiler() {
+        return profiler;
+    }
+
+    private void frame() {
+        long now = System.nanoTime();
+        long interval = now - lastFrameNanos;
+        long events = physics.getEventCount();
+        long pairs = physics.getPairTestCount();
+        long stepStart = System.nanoTime();
+        physics.advanceTo(physics.getTime() + Math.min(interval, MAX_FRAME_NANOS) / 1e9);
+        long stepEnd = System.nanoTime();
+        lastFrameNanos = now;
+        boolean replayMoving = false;
+        if (replaying) {
+            replayMoving = advanceReplay(Math.min(interval, MAX_FRAME_NANOS) / 1e9);
+        }
+        else {
+            for (int i = 0 ; i < allBalls.size() ; i++) {
+                PoolBall ball = allBalls.get(i);
+                renderer.setBall(ball.getIndex(), ball.getCenterX(), ball.getCenterY(),
+                        !ball.isSunk() && !(i == 0 && cueBallHidden));
             }
         }
+        if (inMotion) {
+            update();
+        }
+        else if (previewOutOfDate && !shotStrengthChosen && !replaying) {
+            updatePreview();
+        }
+        if (!inMotion && !replayMoving && !(previewOutOfDate && !shotStrengthChosen && !replaying)) {
+            animation.stop();
+            animating = false;
+        }
+        if (profilerShown && (stepEnd - lastOverlayNanos >= OVERLAY_NANOS || !animating)) {
+            lastOverlayNanos = stepEnd;
+            renderer.setOverlay(profiler.summary());
+        }
+        renderer.draw();
+
+        // The render time covers updating the game and drawing it onto the canvas, including the preview, but not
+        // JavaFX putting the canvas on the screen afterwards
+        long renderEnd = System.nanoTime();
+        profiler.recordFrame(interval, stepEnd - stepStart, physics.getEventCount() - events,
+                physics.getPairTestCount() - pairs, renderEnd - stepEnd);
+    }
+
+    private void update() {
         boolean allStopped = true;
-        for (PoolBall ball : unsunkBalls) {
-            allStopped = allStopped && !ball.isMoving();
+        for (int i = 0 ; i < allBalls.size() && allStopped ; i++) {
+            PoolBall ball = allBalls.get(i);
+            allStopped = ball.isSunk() || !ball.isMoving();
         }
         if (allStopped) {
             inMotion = false;
-            if (allBalls.get(0).isSunk()) {
+            if (replayRecorded) {
+                shotEvents.read(replay);
+                rules = PoolRules.afterShot(rules, shotEvents);
+            }
+            hint.setText(describeTurn());
+
+            // Whoever didn't take the shot tells whoever did where the balls came to rest, to be checked there
+            if (link != null) {
+                int hash = PoolLockstep.hash(physics, rules);
+                restHash = hash;
+                if (replayRecorded) {
+                    boolean local = shotLocal;
+                    onNetworkThread(() -> {
+                        if (local) {
+                            link.receiveHash(hash);
+                        }
+                        else {
+                            link.sendHash(hash);
+                        }
+                    });
+                }
+            }
+            int winner = PoolRules.getWinner(rules);
+            if (winner != PoolRules.NO_WINNER) {
+                message.setText(describeFoul() + "Player " + (winner + 1) + " wins!");
+                super.setOnMouseMoved(null);
+                super.setOnMouseClicked(null);
+                return;
+            }
+            cueBallInHand = PoolRules.hasBallInHand(rules) || allBalls.get(0).isSunk();
+            if (link != null && PoolRules.getShooter(rules) != link.getLocalPlayer()) {
+                waitForRemoteShot();
+            }
+            else if (cueBallInHand) {
                 cueBallLocationPicked = false;
-                message.setText("Scratch! Place cue ball on table.");
-                allBalls.get(0).setSunk(false);
-                unsunkBalls.add(allBalls.get(0));
+                message.setText(describeFoul() + "Place cue ball on table.");
+                if (allBalls.get(0).isSunk()) {
+                    allBalls.get(0).setSunk(false);
+                    cueBallHidden = true;
+                }
                 super.setOnMouseMoved(e -> {
                     if (!cueBallLocationPicked) {
-                        double centerX = Math.max(Math.min(e.getX(), SCENE_WIDTH - PoolBall.MAX_PADDING), PoolBall.MAX_PADDING);
-                        double centerY = Math.max(Math.min(e.getY(), SCENE_HEIGHT - PoolBall.MAX_PADDING), PoolBall.MAX_PADDING);
-                        allBalls.get(0).setCenterX(centerX);
-                        allBalls.get(0).setCenterY(centerY);
-                        if (!super.getChildren().contains(allBalls.get(0))) {
-                            super.getChildren().add(allBalls.get(0));
+                        double centerX = Math.max(Math.min(e.getX(), SCENE_WIDTH - PoolGeometry.MAX_PADDING), PoolGeometry.MAX_PADDING);
+                        double centerY = Math.max(Math.min(e.getY(), SCENE_HEIGHT - PoolGeometry.MAX_PADDING), PoolGeometry.MAX_PADDING);
+                        // The cue ball can't be put down on top of another ball
+                        if (physics.isFree(allBalls.get(0).getIndex(), centerX / PIXELS_PER_METER, centerY / PIXELS_PER_METER)) {
+                            physics.place(allBalls.get(0).getIndex(), centerX / PIXELS_PER_METER, centerY / PIXELS_PER_METER);
+                            cueBallHidden = false;
                         }
+                        wake();
                     }
                 });
                 super.setOnMouseClicked(e -> {
-                    cueBallLocationPicked = true;
-                    nextShot();
+
+                    // A pocketed cue ball stays hidden until it has been put down somewhere free
+                    if (!cueBallHidden) {
+                        cueBallLocationPicked = true;
+                        nextShot();
+                    }
                 });
             }
             else {
                 nextShot();
             }
         }
-//        for (PoolBall b1 : unsunkBalls) {
-//            for (PoolBall b2 : unsunkBalls) {
-//                boolean xOverlap = Math.abs(b1.getCenterX() - b2.getCenterX()) <= PoolBall.BALL_RADIUS * 2;
-//                boolean yOverlap = Math.abs(b1.getCenterY() - b2.getCenterY()) <= PoolBall.BALL_RADIUS * 2;
-//                if (xOverlap && yOverlap && !b1.isObstructed() && !b2.isObstructed()) {
-//                    b1.setObstructed(true);
-////                  b2.setObstructed(true);
-//                    PoolBall.collide(b1, b2);
-//                }
-//            }
-//        }
-//        for (PoolBall ball : unsunkBalls) {
-//            ball.setObstructed(false);
-//        }
 
     }
 
+    // Waits for the other player's shot on networkThread, leaving this side's controls put away, then plays it. A
+    // cue ball that was pocketed stays hidden until the other player has put it down.
+    private void waitForRemoteShot() {
+        if (allBalls.get(0).isSunk()) {
+            allBalls.get(0).setSunk(false);
+            cueBallHidden = true;
+        }
+        message.setText(describeFoul() + "Waiting for player " + (PoolRules.getShooter(rules) + 1) + "...");
+        angleChosen = true;
+        shotStrengthChosen = true;
+        controlPane.setLeft(null);
+        controlPane.setRight(null);
+        super.setOnMouseMoved(null);
+        super.setOnMouseClicked(null);
+        int hash = restHash;
+        onNetworkThread(() -> {
+            PoolLockstep.Shot shot = link.receiveShot(hash);
+            Platform.runLater(() -> {
+                if (shot.isPlaced()) {
+                    physics.place(allBalls.get(0).getIndex(), shot.getX(), shot.getY());
+                    cueBallHidden = false;
+                }
+                shotLocal = false;
+                playShot(shot.getSpeed(), shot.getDirection(), shot.getTipX(), shot.getTipY());
+            });
+        });
+    }
+
+    // Runs task on networkThread, unless the link has already failed. If the task fails, because the other side has
+    // gone or the two tables have drifted apart, the game stops there with the reason shown.
+    private void onNetworkThread(NetworkTask task) {
+        networkThread.submit(() -> {
+            try {
+                task.run();
+            }
+            catch (IOException | IllegalStateException e) {
+                Platform.runLater(() -> {
+                    if (!linkBroken) {
+                        linkBroken = true;
+                        message.setText("Lost the other player: " + e.getMessage());
+                        angleChosen = true;
+                        shotStrengthChosen = true;
+                        controlPane.setLeft(null);
+                        controlPane.setRight(null);
+                        super.setOnMouseMoved(null);
+                        super.setOnMouseClicked(null);
+                        hideCue();
+                    }
+                });
+            }
+        });
+    }
+
+    // Returns who is to shoot next, and what they are shooting at
+    private String describeTurn() {
+        int shooter = PoolRules.getShooter(rules);
+        String player = "Player " + (shooter + 1) + (link != null && shooter == link.getLocalPlayer() ? " (you)" : "");
+        if (PoolRules.isBreak(rules)) {
+            return player + " to break";
+        }
+        switch (PoolRules.getGroup(rules, shooter)) {
+            case PoolRules.SOLIDS:
+                return player + " to shoot: solids";
+            case PoolRules.STRIPES:
+                return player + " to shoot: stripes";
+            default:
+                return player + " to shoot: open table";
+        }
+    }
+
+    // Returns what foul was made on the last shot, followed by a space, or nothing if there wasn't one
+    private String describeFoul() {
+        switch (PoolRules.getFoul(rules)) {
+            case PoolRules.SCRATCH:
+                return "Scratch! ";
+            case PoolRules.NO_CONTACT:
+                return "Foul: no ball hit! ";
+            case PoolRules.WRONG_BALL:
+                return "Foul: wrong ball hit first! ";
+            case PoolRules.NO_RAIL:
+                return "Foul: no ball hit a cushion! ";
+            case PoolRules.BAD_BREAK:
+                return "Foul: illegal break! ";
+            default:
+                return "";
+        }
+    }
+
     private void nextShot() {
         message.setText("Line up new shot:");
         angleChosen = false;
         shotStrengthChosen = false;
-        cue.setFill(Color.DARKMAGENTA);
-        cueOverlay.setFill(Color.BEIGE);
+        controlPane.setLeft(computerButton);
+        computerButton.setOnAction(e -> startComputerShot());
         super.setOnMouseMoved(e -> {
-            if (!angleChosen) {
+            if (!angleChosen && !replaying) {
+                aiming = true;
                 updateCue(e.getX(), e.getY());
-                if (!super.getChildren().contains(cue)) {
-                    super.getChildren().addAll(cue, cueOverlay);
-                }
             }
         });
         super.setOnMouseClicked(e -> {
-            if (!shotStrengthChosen) {
+            if (!shotStrengthChosen && !replaying) {
                 angleChosen = true;
                 message.setText("Choose strength of shot");
                 controlPane.setRight(shotDecider);
                 powerSlider.setOrientation(Orientation.VERTICAL);
-                launchButton.setOnAction(f -> {
-                    shotStrengthChosen = true;
-                    double direction = angle + (angle > 0 ? Math.PI * -1 : Math.PI);
-                    allBalls.get(0).shoot(powerSlider.getValue(), direction);
-                    controlPane.setRight(null);
-                    message.setText("");
-                    super.getChildren().removeAll(cue, cueOverlay);
-                    inMotion = true;
+                launchButton.setOnAction(f -> takeShot(powerSlider.getValue(), shotDirection(), tipX, tipY));
+            }
+        });
+    }
+
+    // Takes the shot lined up in this window. When playing over a link, the shot is first rounded to what the link
+    // sends, and the cue ball put down where the other side will put it, so that both play exactly the same shot.
+    private void takeShot(double speed, double direction, double tipX, double tipY) {
+        shotLocal = true;
+        if (link == null) {
+            playShot(speed, direction, tipX, tipY);
+            return;
+        }
+        if (linkBroken) {
+            return;
+        }
+        int cueBall = allBalls.get(0).getIndex();
+        PoolLockstep.Shot shot = PoolLockstep.Shot.of(cueBallInHand, physics.getX(cueBall), physics.getY(cueBall),
+                direction, speed, tipX, tipY);
+        if (shot.isPlaced()) {
+            physics.place(cueBall, shot.getX(), shot.getY());
+        }
+        int hash = restHash;
+        onNetworkThread(() -> link.sendShot(shot, hash));
+        playShot(shot.getSpeed(), shot.getDirection(), shot.getTipX(), shot.getTipY());
+    }
+
+    // Strikes the cue ball at speed m/s in direction, in radians clockwise from the positive x-axis, with the cue tip
+    // at (tipX, tipY), and puts the controls away until the balls stop
+    private void playShot(double speed, double direction, double tipX, double tipY) {
+        angleChosen = true;
+        shotStrengthChosen = true;
+        replay.record(physics, allBalls.get(0).getIndex(), speed, direction, tipX, tipY);
+        replayRecorded = true;
+        physics.shoot(allBalls.get(0).getIndex(), speed, direction, tipX, tipY);
+        controlPane.setLeft(null);
+        controlPane.setRight(null);
+        message.setText("");
+        hideCue();
+        previewOutOfDate = false;
+        inMotion = true;
+        wake();
+    }
+
+    // Moves the cue tip to the point (x, y) of the tip picker, or as near to it as the tip can go
+    private void pickTip(double x, double y) {
+        double offsetX = (x - TIP_PICKER_RADIUS) / TIP_PICKER_RADIUS;
+        double offsetY = (TIP_PICKER_RADIUS - y) / TIP_PICKER_RADIUS;
+        double offset = Math.hypot(offsetX, offsetY);
+        if (offset > MAX_TIP_OFFSET) {
+            offsetX *= MAX_TIP_OFFSET / offset;
+            offsetY *= MAX_TIP_OFFSET / offset;
+        }
+        tipX = offsetX;
+        tipY = offsetY;
+        tipMark.setCenterX(TIP_PICKER_RADIUS * (1 + tipX));
+        tipMark.setCenterY(TIP_PICKER_RADIUS * (1 - tipY));
+        previewOutOfDate = true;
+        wake();
+    }
+
+    // Returns the direction the cue is pointing the cue ball in, in radians clockwise from the positive x-axis
+    private double shotDirection() {
+        return angle + (angle > 0 ? Math.PI * -1 : Math.PI);
+    }
+
+    // Works out the paths of the shot lined up and redraws them
+    private void updatePreview() {
+        previewOutOfDate = false;
+        double speed = angleChosen && powerSlider.getValue() > 0 ? powerSlider.getValue() : PREVIEW_SPEED;
+        preview.compute(physics, allBalls.get(0).getIndex(), speed, shotDirection(), tipX, tipY);
+        if (aiming) {
+            renderer.showPreview(preview);
+        }
+    }
+
+    // Puts the controls away and shows the last shot from its start, with every ball that was on the table for it
+    private void startReplay() {
+        replaying = true;
+        replayTime = 0;
+        replaySpeed = 1;
+        replayMessageTenths = -1;
+        controlPane.setLeft(null);
+        hideCue();
+        wake();
+    }
+
+    // Puts the table back as the game left it and brings the controls back for the next shot
+    private void stopReplay() {
+        replaying = false;
+        message.setText("Line up new shot:");
+        controlPane.setLeft(computerButton);
+        previewOutOfDate = true;
+        wake();
+    }
+
+    // Moves the replay on by dt seconds of real time at replaySpeed, and shows every ball where it was then. Returns
+    // false once the replay has reached the end it is heading for.
+    private boolean advanceReplay(double dt) {
+        replayTime = Math.max(0, Math.min(replay.getDuration(), replayTime + dt * replaySpeed));
+        replay.seek(replayTime);
+        for (int i = 0 ; i < allBalls.size() ; i++) {
+            int ball = allBalls.get(i).getIndex();
+            renderer.setBall(ball, replay.getX(ball) * PIXELS_PER_METER, replay.getY(ball) * PIXELS_PER_METER,
+                    !replay.isSunk(ball));
+        }
+
+        // The message only shows tenths of a second, so it is only written again when they change
+        long tenths = Math.round(replayTime * 10);
+        if (tenths != replayMessageTenths || replaySpeed != replayMessageSpeed) {
+            replayMessageTenths = tenths;
+            replayMessageSpeed = replaySpeed;
+            message.setText(String.format("Replay %.1f s, %sx speed", tenths / 10.0,
+                    (replaySpeed < 0 ? "-" : "") + formatSpeed(Math.abs(replaySpeed))));
+        }
+        return replaySpeed > 0 ? replayTime < replay.getDuration() : replayTime > 0;
+    }
+
+    // Writes a replay speed as a whole number, or as a fraction such as 1/4 when slower than real time
+    private static String formatSpeed(double speed) {
+        return speed >= 1 ? String.valueOf((int) speed) : "1/" + (int) Math.round(1 / speed);
+    }
+
+    // This method has the computer choose a shot on computerThread, from a copy of the table taken now, then plays
+    // the shot back on the JavaFX thread. The mouse is ignored until then. If the search fails, the player takes the
+    // shot instead.
+    private void startComputerShot() {
+        angleChosen = true;
+        shotStrengthChosen = true;
+        controlPane.setLeft(null);
+        controlPane.setRight(null);
+        hideCue();
+        wake();
+        message.setText("Computer is thinking...");
+        super.setCursor(Cursor.WAIT);
+        PoolPhysics snapshot = new PoolPhysics();
+        snapshot.copyFrom(physics);
+        int cueBall = allBalls.get(0).getIndex();
+        long state = rules;
+        computerThread.submit(() -> {
+            try {
+                PoolShot shot = shotSearch.chooseShot(snapshot, state, cueBall,
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(COMPUTER_TIME_BUDGET_MILLIS));
+                Platform.runLater(() -> {
+                    super.setCursor(Cursor.DEFAULT);
+                    takeShot(shot.getSpeed(), shot.getDirection(), 0, 0);
+                });
+            }
+            catch (Exception e) {
+
+                // Hands the shot back to the player rather than leaving the table waiting on a shot that won't come
+                Platform.runLater(() -> {
+                    super.setCursor(Cursor.DEFAULT);
+                    nextShot();
+                    message.setText("The computer couldn't choose a shot: " + e.getMessage() + "\nLine up new shot:");
                 });
             }
         });
     }
 
+    // Points the cue at the cue ball from the mouse at (x, y)
     private void updateCue(double x, double y) {
-        double cueWidthBase = 3;
-        double cueWidthEnd = 6;
-        double cueDistance = 15;
         double cueBallX = allBalls.get(0).getCenterX();
         double cueBallY = allBalls.get(0).getCenterY();
         double xDist = cueBallX - x;
@@ -317,30 +689,16 @@ class PoolTable<vBox> extends Pane {
         if (x < cueBallX) {
             angle = (y < cueBallY ? angle - Math.PI : angle + Math.PI);
         }
-        cue.getPoints().clear();
-        cue.getPoints().addAll(
-                cueBallX + Math.cos(angle) * cueDistance + Math.sin(angle) * cueWidthBase,
-                cueBallY + Math.sin(angle) * cueDistance - Math.cos(angle) * cueWidthBase,
-                cueBallX + Math.cos(angle) * cueDistance - Math.sin(angle) * cueWidthBase,
-                cueBallY + Math.sin(angle) * cueDistance + Math.cos(angle) * cueWidthBase,
-                cueBallX + Math.cos(angle) * (cueDistance + CUE_LENGTH) - Math.sin(angle) * cueWidthEnd,
-                cueBallY + Math.sin(angle) * (cueDistance + CUE_LENGTH) + Math.cos(angle) * cueWidthEnd,
-                cueBallX + Math.cos(angle) * (cueDistance + CUE_LENGTH) + Math.sin(angle) * cueWidthEnd,
-                cueBallY + Math.sin(angle) * (cueDistance + CUE_LENGTH) - Math.cos(angle) * cueWidthEnd
-
-        );
-        List<Double> cuePoints = cue.getPoints();
-        cueOverlay.getPoints().clear();
-        cueOverlay.getPoints().addAll(
-                cuePoints.get(0), cuePoints.get(1),
-                cuePoints.get(2), cuePoints.get(3),
-                cuePoints.get(6), cuePoints.get(7),
-                cuePoints.get(4), cuePoints.get(5)
-        );
+        renderer.showCue(cueBallX, cueBallY, angle);
+        previewOutOfDate = true;
+        wake();
     }
 
-    static Circle[] getHOLES() {
-        return HOLES;
+    // Takes the cue and preview off the table
+    private void hideCue() {
+        aiming = false;
+        renderer.hideCue();
+        renderer.hidePreview();
     }
 
 }
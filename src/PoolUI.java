@@ -1,23 +1,65 @@
 import javafx.application.Application;
 import javafx.scene.Scene;
+import javafx.scene.input.KeyEvent;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+
 public class PoolUI extends Application {
 
-    private PoolTable table = new PoolTable();
+    // The link to the other player when playing against someone in another window, made by main before the window
+    // opens, or null to play with both players at this window
+    private static PoolLockstep link;
+
+    private PoolTable table = new PoolTable(link);
     private Scene scene = new Scene(table, PoolTable.SCENE_WIDTH, PoolTable.SCENE_HEIGHT);
 
     @Override
     public void start(Stage primaryStage) {
 
+        // Keys go to the table before any control, so that the arrow keys can steer a replay while a button has focus
+        scene.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            if (table.handleKey(e.getCode())) {
+                e.consume();
+            }
+        });
+
         // Sets title and scene for primaryStage, makes window size constant, and launches window
         primaryStage.setTitle("8-ball Pool");
         primaryStage.setScene(scene);
         primaryStage.setResizable(false);
         primaryStage.show();
+
+        // Writes out the frame profile when the window is closed, if the profiler was looked at during the session
+        primaryStage.setOnCloseRequest(e -> {
+            if (table.wasProfilerShown()) {
+                File file = PoolProfiler.newSessionFile();
+                try {
+                    table.getProfiler().export(file);
+                    System.out.println("Wrote frame profile to " + file);
+                }
+                catch (IOException exception) {
+                    System.err.println("Couldn't write frame profile to " + file + ": " + exception.getMessage());
+                }
+            }
+        });
     }
 
-    public static void main(String[] args) {
+    // Run with no arguments for both players to share this window. To play someone in another window on this
+    // machine, run one copy with "host" and then another with "join", each optionally followed by a port number.
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && (args[0].equals("host") || args[0].equals("join"))) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : PoolLockstep.DEFAULT_PORT;
+            if (args[0].equals("host")) {
+                System.out.println("Waiting for the other player on port " + port);
+                link = PoolLockstep.host(port);
+            }
+            else {
+                link = PoolLockstep.join(port);
+            }
+            System.out.println("Playing as player " + (link.getLocalPlayer() + 1));
+        }
         launch(args);
     }
 
@@ -0,0 +1,181 @@
+// This player searches the game tree with negamax and alpha-beta pruning. On boards small enough to search to the
+// end it plays perfectly; otherwise it stops at maxDepth and scores positions by the lines each side can still win.
+// Searches deepen one move at a time, so that when time runs out the move from the deepest finished search is played.
+class TicTacToeAlphaBetaPlayer implements TicTacToePlayer {
+
+    // Scores above WIN - 64 are forced wins, adjusted by depth so that quicker wins are preferred
+    static final int WIN = 1_000_000;
+
+    // The clock is only checked once every this many nodes, since reading it costs more than searching a node
+    private static final int NODES_PER_CLOCK_CHECK = 1024;
+
+    private final int maxDepth;
+    private long nodeCount;
+
+    // Set once the deadline passes, after which the search unwinds and its result is discarded
+    private long deadline;
+    private boolean aborted;
+
+    // Squares to try first, from the center outwards, cached for the most recently seen board size
+    private int[] moveOrder = new int[0];
+    private int orderRows;
+    private int orderColumns;
+
+    // Constructs a player that searches every position to the end of the game
+    TicTacToeAlphaBetaPlayer() {
+        this(Integer.MAX_VALUE);
+    }
+
+    // Constructs a player that searches at most maxDepth moves ahead
+    TicTacToeAlphaBetaPlayer(int maxDepth) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be at least 1");
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board) {
+        return chooseMove(board, NO_DEADLINE);
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board, long deadline) {
+        int[] order = moveOrder(board);
+        this.deadline = deadline;
+        aborted = false;
+
+        // Falls back on the first legal move in case not even a one-move search finishes in time
+        int bestMove = -1;
+        for (int square : order) {
+            if (board.isLegalMove(square)) {
+                bestMove = square;
+                break;
+            }
+        }
+
+        int emptySquares = board.getNumSquares() - board.getNumMoves();
+        for (int depth = 1 ; depth <= Math.min(maxDepth, emptySquares) ; depth++) {
+            int depthBestMove = -1;
+            int alpha = -WIN - 1;
+            for (int square : order) {
+                if (board.isLegalMove(square)) {
+                    board.play(square);
+                    int score = -negamax(board, 1, depth, -WIN - 1, -alpha);
+                    board.undo(square);
+                    if (aborted) {
+                        return bestMove;
+                    }
+                    if (score > alpha || depthBestMove < 0) {
+                        alpha = score;
+                        depthBestMove = square;
+                    }
+                }
+            }
+            bestMove = depthBestMove;
+
+            // Once a forced result has been found, searching deeper can't change it
+            if (Math.abs(alpha) > WIN - 64) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    // Returns the score of board for the side to move, searching at most depth - ply further moves
+    private int negamax(TicTacToeBoard board, int ply, int depth, int alpha, int beta) {
+        nodeCount++;
+        if (nodeCount % NODES_PER_CLOCK_CHECK == 0 && TicTacToePlayer.isOutOfTime(deadline)) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        WinCondition status = board.getGameStatus();
+        if (status == WinCondition.DRAW) {
+            return 0;
+        }
+        else if (status != WinCondition.NONE) {
+            // The previous move won, so the side to move has lost
+            return -(WIN - ply);
+        }
+        else if (ply >= depth) {
+            return evaluate(board);
+        }
+
+        int best = -WIN - 1;
+        for (int square : moveOrder) {
+            if (board.isLegalMove(square)) {
+                board.play(square);
+                int score = -negamax(board, ply + 1, depth, -beta, -alpha);
+                board.undo(square);
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // Scores an unfinished position for the side to move by counting the tokens in every line that is still open
+    // to only one side, so that lines closer to completion count for more
+    static int evaluate(TicTacToeBoard board) {
+        boolean xToMove = board.getNextMove() == TileValue.X;
+        long mine = xToMove ? board.getXBits() : board.getOBits();
+        long theirs = xToMove ? board.getOBits() : board.getXBits();
+        int score = 0;
+        for (long line : board.getLines()) {
+            if ((line & theirs) == 0) {
+                int n = Long.bitCount(line & mine);
+                score += n * n;
+            }
+            else if ((line & mine) == 0) {
+                int n = Long.bitCount(line & theirs);
+                score -= n * n;
+            }
+        }
+        return score;
+    }
+
+    // Returns every square of the board ordered by distance from the center, since central squares lie on the most
+    // lines and so make good first guesses for pruning
+    private int[] moveOrder(TicTacToeBoard board) {
+        if (moveOrder.length != board.getNumSquares() || orderRows != board.getRows() ||
+                orderColumns != board.getColumns()) {
+            orderRows = board.getRows();
+            orderColumns = board.getColumns();
+            moveOrder = centerOutOrder(orderRows, orderColumns);
+        }
+        return moveOrder;
+    }
+
+    // Returns the squares of a rows x columns board sorted by distance from the center
+    static int[] centerOutOrder(int rows, int columns) {
+        Integer[] squares = new Integer[rows * columns];
+        for (int i = 0 ; i < squares.length ; i++) {
+            squares[i] = i;
+        }
+        double centerI = (rows - 1) / 2.0;
+        double centerJ = (columns - 1) / 2.0;
+        java.util.Arrays.sort(squares, (a, b) -> Double.compare(
+                Math.pow(a / columns - centerI, 2) + Math.pow(a % columns - centerJ, 2),
+                Math.pow(b / columns - centerI, 2) + Math.pow(b % columns - centerJ, 2)));
+        int[] order = new int[squares.length];
+        for (int i = 0 ; i < order.length ; i++) {
+            order[i] = squares[i];
+        }
+        return order;
+    }
+
+}
@@ -0,0 +1,231 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// This class evaluates large batches of standard 3x3 positions at once, for analysing recorded games in bulk. Each
+// position is packed into the low 18 bits of an int, in the same layout as a small board of UltimateTicTacToe: bits
+// 0-8 hold X's squares and bits 9-17 O's, numbered row by row from the top left. Every possible packed position is
+// solved once, when the class is loaded, into flat lookup tables, so evaluating a position is a handful of bit
+// operations and two array reads with no branches or objects, and large batches are split across all cores.
+final class TicTacToeBatch {
+
+    // Status code for a packed int that isn't a position that can arise in a game started by the given side. The
+    // other status codes are the ordinals of WinCondition.
+    static final byte INVALID = -1;
+
+    // Best move code for positions where the game is over or invalid
+    static final byte NO_MOVE = -1;
+
+    private static final int SQUARES = 9;
+    private static final int POSITIONS = 1 << (2 * SQUARES);
+    private static final int ROW = 0x1FF;
+
+    // Batches smaller than this are evaluated on the calling thread, since splitting them costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    // The score of a lost position, far enough from zero that delaying it by nine moves can't reach a draw
+    private static final int LOSS = 100;
+
+    private static final int[] LINES = {0x007, 0x038, 0x1C0, 0x049, 0x092, 0x124, 0x111, 0x054};
+
+    // STATUS[position | oFirst << 18] is the status code of every packed position, in a game started by X or by O
+    private static final byte[] STATUS = new byte[POSITIONS * 2];
+
+    // BEST_MOVE[position | oToMove << 18] is the perfect-play move for the side to move, preferring quicker wins
+    // and slower losses
+    private static final byte[] BEST_MOVE = new byte[POSITIONS * 2];
+
+    static {
+        int[] order = TicTacToeAlphaBetaPlayer.centerOutOrder(3, 3);
+        int[][] scores = new int[2][POSITIONS];
+        boolean[][] solved = new boolean[2][POSITIONS];
+        for (int position = 0 ; position < POSITIONS ; position++) {
+            STATUS[position] = status(position, false);
+            STATUS[position | POSITIONS] = status(position, true);
+            BEST_MOVE[position] = NO_MOVE;
+            BEST_MOVE[position | POSITIONS] = NO_MOVE;
+        }
+        for (int position = 0 ; position < POSITIONS ; position++) {
+            int x = Integer.bitCount(position & ROW);
+            int o = Integer.bitCount(position >>> SQUARES);
+            if (STATUS[position] == WinCondition.NONE.ordinal()) {
+                solve(position, x == o + 1, order, scores, solved);
+            }
+            if (STATUS[position | POSITIONS] == WinCondition.NONE.ordinal()) {
+                solve(position, x == o, order, scores, solved);
+            }
+        }
+    }
+
+    private TicTacToeBatch() {
+    }
+
+    // Packs a 3x3 board into the 18-bit layout used by this class
+    static int pack(TicTacToeBoard board) {
+        if (board.getRows() != 3 || board.getColumns() != 3 || board.getK() != 3) {
+            throw new IllegalArgumentException("Only 3x3 boards with k = 3 can be packed");
+        }
+        return (int) board.getXBits() | (int) board.getOBits() << SQUARES;
+    }
+
+    // Writes the status code of each packed position into status, and the best move for the side to move into
+    // bestMove, for count positions starting at offset in each array. firstMove is the side that started every game:
+    // a position where the other side has made more moves is invalid, and when both sides have made the same number
+    // of moves, firstMove is to move. Large batches are evaluated in parallel.
+    static void evaluate(int[] positions, byte[] status, byte[] bestMove, int offset, int count,
+                         TileValue firstMove) {
+        if (offset < 0 || count < 0 || offset + count > positions.length || offset + count > status.length ||
+                offset + count > bestMove.length) {
+            throw new IndexOutOfBoundsException("Batch does not fit in the given arrays");
+        }
+        if (firstMove == TileValue.EMPTY) {
+            throw new IllegalArgumentException("firstMove must be X or O");
+        }
+        int oFirst = firstMove == TileValue.O ? 1 : 0;
+        if (count < PARALLEL_THRESHOLD) {
+            evaluateRange(positions, status, bestMove, offset, offset + count, oFirst);
+        }
+        else {
+            int chunks = (count + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int start = offset + c * PARALLEL_THRESHOLD;
+                evaluateRange(positions, status, bestMove, start,
+                        start + Math.min(PARALLEL_THRESHOLD, count - c * PARALLEL_THRESHOLD), oFirst);
+            });
+        }
+    }
+
+    // Evaluates every position in batch, assuming X moved first
+    static void evaluate(int[] positions, byte[] status, byte[] bestMove) {
+        evaluate(positions, status, bestMove, 0, positions.length, TileValue.X);
+    }
+
+    // Evaluates positions from start up to end. The loop body has no branches: out-of-range bits are folded into
+    // the table index so that they land on an invalid entry, and the side to move is found arithmetically.
+    private static void evaluateRange(int[] positions, byte[] status, byte[] bestMove, int start, int end,
+                                      int oFirst) {
+        for (int i = start ; i < end ; i++) {
+            int position = positions[i];
+
+            // Any bit above the 18 used marks the position invalid, by pointing it at a square held by both sides
+            int stray = (position >>> (2 * SQUARES) | -(position >>> (2 * SQUARES))) >>> 31;
+            int index = (position & (POSITIONS - 1)) | stray * (1 | 1 << SQUARES);
+
+            // O is to move if X has made more moves, or they have made the same number and O moved first
+            int difference = Integer.bitCount(index & ROW) - Integer.bitCount(index >>> SQUARES);
+            int oToMove = (-difference >>> 31) | ((((difference | -difference) >>> 31) ^ 1) & oFirst);
+
+            // An invalid status is -1, the same as NO_MOVE, so or-ing its sign into the move clears the move
+            int code = STATUS[index | oFirst << (2 * SQUARES)];
+            status[i] = (byte) code;
+            bestMove[i] = (byte) (BEST_MOVE[index | oToMove << (2 * SQUARES)] | code >> 31);
+        }
+    }
+
+    // Returns the status code of a packed position in a game started by O if oFirst, or by X otherwise. The side
+    // that started must have made as many moves as the other side or one more, and a line can only have been made
+    // by whoever moved last.
+    private static byte status(int position, boolean oFirst) {
+        int x = position & ROW;
+        int o = position >>> SQUARES;
+        int numX = Integer.bitCount(x);
+        int numO = Integer.bitCount(o);
+        boolean xLine = false;
+        boolean oLine = false;
+        boolean blocked = true;
+        for (int line : LINES) {
+            xLine |= (x & line) == line;
+            oLine |= (o & line) == line;
+            blocked &= (x & line) != 0 && (o & line) != 0;
+        }
+        int lead = oFirst ? numO - numX : numX - numO;
+        boolean xLast = (lead == 1) != oFirst;
+        if ((x & o) != 0 || lead < 0 || lead > 1 || (xLine && oLine) || (xLine && !xLast) || (oLine && xLast)) {
+            return INVALID;
+        }
+        else if (xLine) {
+            return (byte) WinCondition.X.ordinal();
+        }
+        else if (oLine) {
+            return (byte) WinCondition.O.ordinal();
+        }
+        else if (blocked) {
+            // Once every line holds moves from both players the game is a draw, as in TicTacToeBoard
+            return (byte) WinCondition.DRAW.ordinal();
+        }
+        else {
+            return (byte) WinCondition.NONE.ordinal();
+        }
+    }
+
+    // Returns the perfect-play score of a packed position for the side to move, memoised in scores, and records its
+    // best move. Wins score more the sooner they come, losses less.
+    private static int solve(int position, boolean oToMove, int[] order, int[][] scores, boolean[][] solved) {
+        int side = oToMove ? 1 : 0;
+        if (solved[side][position]) {
+            return scores[side][position];
+        }
+
+        // O started the game if O has made more moves, or as many as X and O is to move
+        int x = Integer.bitCount(position & ROW);
+        int o = Integer.bitCount(position >>> SQUARES);
+        int oFirst = o > x || (o == x && oToMove) ? 1 : 0;
+        int status = STATUS[position | oFirst << (2 * SQUARES)];
+        int score;
+        if (status == WinCondition.NONE.ordinal()) {
+            score = Integer.MIN_VALUE;
+            int occupied = (position | position >>> SQUARES) & ROW;
+            for (int square : order) {
+                if ((occupied & (1 << square)) == 0) {
+                    int child = position | 1 << (oToMove ? square + SQUARES : square);
+                    int childScore = -solve(child, !oToMove, order, scores, solved);
+                    if (childScore > score) {
+                        score = childScore;
+                        BEST_MOVE[position | side << (2 * SQUARES)] = (byte) square;
+                    }
+                }
+            }
+        }
+        else if (status == WinCondition.DRAW.ordinal()) {
+            score = 0;
+        }
+        else {
+            // The previous move won, so the side to move has lost
+            score = -LOSS;
+        }
+
+        // Scores shrink towards zero by one for each move of delay, so quicker wins are preferred
+        if (status == WinCondition.NONE.ordinal() && score != 0) {
+            score -= Integer.signum(score);
+        }
+        scores[side][position] = score;
+        solved[side][position] = true;
+        return score;
+    }
+
+    // Evaluates random positions from real games and reports how many positions per second are evaluated
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] positions = new int[count];
+        SplittableRandom random = new SplittableRandom(1);
+        TicTacToePlayer player = new TicTacToeRandomPlayer(random);
+        for (int i = 0 ; i < count ; ) {
+            TicTacToeBoard board = new TicTacToeBoard(3, 3, 3, TileValue.X);
+            while (board.getGameStatus() == WinCondition.NONE && i < count) {
+                positions[i++] = pack(board);
+                board.play(player.chooseMove(board));
+            }
+        }
+
+        byte[] status = new byte[count];
+        byte[] bestMove = new byte[count];
+        for (int round = 0 ; round < rounds ; round++) {
+            long start = System.nanoTime();
+            evaluate(positions, status, bestMove);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Evaluated %,d positions in %.3f s (%,.0f positions/s)%n", count, seconds,
+                    count / seconds);
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+import java.util.ArrayList;
+
+// This class stores an m,n,k game (m rows, n columns, k in a row to win) as a pair of bitboards, one bit per
+// square, so that positions can be copied, searched, and compared without creating any objects. Squares are
+// numbered row by row, so square (i, j) is bit i * columns + j. Boards of up to 64 squares are supported.
+class TicTacToeBoard {
+
+    // These are the necessary starting values required to construct the board
+    private final int rows;
+    private final int columns;
+    private final int k;
+
+    // Each mask holds the k squares of one possible row, column, or diagonal win
+    private final long[] lines;
+
+    // For each square, the indices into lines of every possible win passing through that square
+    private final int[][] linesThroughSquare;
+
+    // Has a bit set for every square on the board
+    private final long fullMask;
+
+    // The token that moved first, used to work out whose turn it is from the number of moves made
+    private final TileValue firstMove;
+
+    // Bit i is set if square i holds an X or an O respectively
+    private long xBits;
+    private long oBits;
+
+    private int numMoves;
+    private WinCondition gameStatus;
+
+    // Constructs an empty board with the given dimensions, with firstMove taking the first turn
+    TicTacToeBoard(int rows, int columns, int k, TileValue firstMove) {
+        if (rows < 1 || columns < 1 || rows * columns > 64) {
+            throw new IllegalArgumentException("Board must have between 1 and 64 squares");
+        }
+        if (k < 1 || (k > rows && k > columns)) {
+            throw new IllegalArgumentException("k must fit within the board");
+        }
+        if (firstMove == TileValue.EMPTY) {
+            throw new IllegalArgumentException("firstMove must be X or O");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.k = k;
+        this.firstMove = firstMove;
+        fullMask = rows * columns == 64 ? -1L : (1L << (rows * columns)) - 1;
+        gameStatus = WinCondition.NONE;
+
+        // Collects every horizontal, vertical, and diagonal window of k squares
+        ArrayList<Long> lineList = new ArrayList<>();
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int i = 0 ; i < rows ; i++) {
+            for (int j = 0 ; j < columns ; j++) {
+                for (int[] direction : directions) {
+                    int endI = i + direction[0] * (k - 1);
+                    int endJ = j + direction[1] * (k - 1);
+                    if (endI >= 0 && endI < rows && endJ >= 0 && endJ < columns) {
+                        long line = 0;
+                        for (int step = 0 ; step < k ; step++) {
+                            line |= 1L << square(i + direction[0] * step, j + direction[1] * step);
+                        }
+                        // A 1-in-a-row board produces the same single-square line in every direction
+                        if (!lineList.contains(line)) {
+                            lineList.add(line);
+                        }
+                    }
+                }
+            }
+        }
+        lines = new long[lineList.size()];
+        for (int i = 0 ; i < lines.length ; i++) {
+            lines[i] = lineList.get(i);
+        }
+
+        // Indexes the lines by square so that only the lines through the latest move need to be checked for a win
+        linesThroughSquare = new int[rows * columns][];
+        for (int s = 0 ; s < linesThroughSquare.length ; s++) {
+            int count = 0;
+            for (long line : lines) {
+                if ((line & (1L << s)) != 0) {
+                    count++;
+                }
+            }
+            linesThroughSquare[s] = new int[count];
+            count = 0;
+            for (int l = 0 ; l < lines.length ; l++) {
+                if ((lines[l] & (1L << s)) != 0) {
+                    linesThroughSquare[s][count++] = l;
+                }
+            }
+        }
+    }
+
+    // Constructs a copy of another board, sharing its immutable line tables
+    private TicTacToeBoard(TicTacToeBoard other) {
+        rows = other.rows;
+        columns = other.columns;
+        k = other.k;
+        lines = other.lines;
+        linesThroughSquare = other.linesThroughSquare;
+        fullMask = other.fullMask;
+        firstMove = other.firstMove;
+        xBits = other.xBits;
+        oBits = other.oBits;
+        numMoves = other.numMoves;
+        gameStatus = other.gameStatus;
+    }
+
+    // Returns an independent copy of this board
+    TicTacToeBoard copy() {
+        return new TicTacToeBoard(this);
+    }
+
+    // Returns the square index for row i and column j
+    int square(int i, int j) {
+        return i * columns + j;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    int getK() {
+        return k;
+    }
+
+    int getNumSquares() {
+        return rows * columns;
+    }
+
+    int getNumMoves() {
+        return numMoves;
+    }
+
+    long getXBits() {
+        return xBits;
+    }
+
+    long getOBits() {
+        return oBits;
+    }
+
+    TileValue getFirstMove() {
+        return firstMove;
+    }
+
+    // Returns a mask of every line of k squares that wins the game
+    long[] getLines() {
+        return lines;
+    }
+
+    // Returns a mask with a bit set for every empty square
+    long getEmptySquares() {
+        return ~(xBits | oBits) & fullMask;
+    }
+
+    // Returns the value of the given square
+    TileValue getTileValue(int square) {
+        long bit = 1L << square;
+        if ((xBits & bit) != 0) {
+            return TileValue.X;
+        }
+        else if ((oBits & bit) != 0) {
+            return TileValue.O;
+        }
+        else {
+            return TileValue.EMPTY;
+        }
+    }
+
+    // Returns the token that will be used for the next move
+    TileValue getNextMove() {
+        if ((numMoves & 1) == 0) {
+            return firstMove;
+        }
+        else {
+            return firstMove == TileValue.X ? TileValue.O : TileValue.X;
+        }
+    }
+
+    // Returns the current status of the game
+    WinCondition getGameStatus() {
+        return gameStatus;
+    }
+
+    // Returns true if a move may be played in the given square
+    boolean isLegalMove(int square) {
+        return gameStatus == WinCondition.NONE && square >= 0 && square < rows * columns &&
+                ((xBits | oBits) & (1L << square)) == 0;
+    }
+
+    // Places the next token in the given square and updates the game status. The square must be a legal move.
+    void play(int square) {
+        long bit = 1L << square;
+        boolean x = getNextMove() == TileValue.X;
+        if (x) {
+            xBits |= bit;
+        }
+        else {
+            oBits |= bit;
+        }
+        numMoves++;
+
+        // Only lines through the new move can have been completed by it
+        long mine = x ? xBits : oBits;
+        for (int l : linesThroughSquare[square]) {
+            if ((lines[l] & mine) == lines[l]) {
+                gameStatus = x ? WinCondition.X : WinCondition.O;
+                return;
+            }
+        }
+        if (isBlocked()) {
+            gameStatus = WinCondition.DRAW;
+        }
+    }
+
+    // Removes the token from the given square, which must hold the most recent move
+    void undo(int square) {
+        long bit = ~(1L << square);
+        xBits &= bit;
+        oBits &= bit;
+        numMoves--;
+
+        // Moves can only be made while the game is in progress, so undoing one always leaves it in progress
+        gameStatus = WinCondition.NONE;
+    }
+
+    // Returns true if every line contains at least one move from each player, in which case neither can win
+    private boolean isBlocked() {
+        for (long line : lines) {
+            if ((line & xBits) == 0 || (line & oBits) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
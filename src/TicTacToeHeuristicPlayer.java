@@ -0,0 +1,133 @@
+// This player makes the same rule-based choices the computer has always made on the standard 3x3 board, working
+// directly on the bitboards so that it can be used for fast headless play as well as in TicTacToe itself
+class TicTacToeHeuristicPlayer implements TicTacToePlayer {
+
+    // Each row represents a grouping of squares, numbered 0-8 row by row from the top left
+    private static final int[][] PATHS = {
+            // Rows, top to bottom
+            {0, 1, 2}, {3, 4, 5}, {6, 7, 8},
+            // Columns, left to right
+            {0, 3, 6}, {1, 4, 7}, {2, 5, 8},
+            // Diagonal from top left to bottom right
+            {0, 4, 8},
+            // Diagonal from bottom left to top right
+            {6, 4, 2},
+            // Corner squares, listed clockwise from top left
+            {0, 2, 8, 6},
+            // Middle side squares, listed clockwise from top center
+            {1, 5, 7, 3}
+    };
+
+    // Indices 0-7 of PATHS are rows, columns, and diagonals; these index the corners and middle side squares
+    private static final int CORNERS = 8;
+    private static final int SIDES = 9;
+    private static final int CENTER = 4;
+
+    // Reference arrays filled in for each move, reused so that choosing a move creates no objects
+    private final int[] numComputerMoves = new int[PATHS.length];
+    private final int[] numPlayerMoves = new int[PATHS.length];
+    private final long[] openSquares = new long[PATHS.length];
+
+    @Override
+    public int chooseMove(TicTacToeBoard board) {
+        if (board.getRows() != 3 || board.getColumns() != 3 || board.getK() != 3) {
+            throw new IllegalArgumentException("The heuristic player only plays on a 3x3 board");
+        }
+
+        // The computer is whoever is to move, the player is their opponent
+        boolean computerIsX = board.getNextMove() == TileValue.X;
+        long computer = computerIsX ? board.getXBits() : board.getOBits();
+        long player = computerIsX ? board.getOBits() : board.getXBits();
+        long empty = board.getEmptySquares();
+
+        // Counts moves from each side and collects the open squares within each path
+        for (int i = 0 ; i < PATHS.length ; i++) {
+            long path = 0;
+            for (int square : PATHS[i]) {
+                path |= 1L << square;
+            }
+            numComputerMoves[i] = Long.bitCount(computer & path);
+            numPlayerMoves[i] = Long.bitCount(player & path);
+            openSquares[i] = empty & path;
+        }
+
+        // The following code shows desired moves for the computer in descending priority
+
+        // 1) If computer can win, make a winning move
+        for (int i = 0 ; i < CORNERS ; i++) {
+            if (numComputerMoves[i] == 2 && numPlayerMoves[i] == 0) {
+                return firstOpen(i, openSquares[i]);
+            }
+        }
+
+        // 2) If player has opportunity to win, block it
+        for (int i = 0 ; i < CORNERS ; i++) {
+            if (numComputerMoves[i] == 0 && numPlayerMoves[i] == 2) {
+                return firstOpen(i, openSquares[i]);
+            }
+        }
+
+        // 3) If possible, create a forking move (two possibilities to win on next move)
+        int fork = findFork(numComputerMoves, numPlayerMoves);
+        if (fork >= 0) {
+            return fork;
+        }
+
+        // 4) If player has an opportunity to fork, block it
+        fork = findFork(numPlayerMoves, numComputerMoves);
+        if (fork >= 0) {
+            return fork;
+        }
+
+        // 5) If center square is available, choose it
+        if ((empty & (1L << CENTER)) != 0) {
+            return CENTER;
+        }
+
+        // 6) If player is in a corner and opposite corner is available, choose it
+        if (numPlayerMoves[CORNERS] > 0 && numComputerMoves[CORNERS] + numPlayerMoves[CORNERS] < 4) {
+            int[] corners = PATHS[CORNERS];
+            for (int c = 0 ; c < corners.length ; c++) {
+                int opposite = corners[(c + 2) % corners.length];
+                if ((player & (1L << corners[c])) != 0 && (empty & (1L << opposite)) != 0) {
+                    return opposite;
+                }
+            }
+        }
+
+        // 7) If an empty corner square is available, choose it
+        if (openSquares[CORNERS] != 0) {
+            return firstOpen(CORNERS, openSquares[CORNERS]);
+        }
+
+        // 8) If nothing else is available, play in an empty middle square on one of the sides
+        else {
+            return firstOpen(SIDES, openSquares[SIDES]);
+        }
+    }
+
+    // Looks for an open square shared by two lines which each hold one of own's moves and none of other's
+    private int findFork(int[] own, int[] other) {
+        for (int i = 0 ; i < CORNERS ; i++) {
+            if (own[i] == 1 && other[i] == 0) {
+                for (int j = 0 ; j < CORNERS ; j++) {
+                    if (j != i && own[j] == 1 && other[j] == 0 && (openSquares[i] & openSquares[j]) != 0) {
+                        return firstOpen(i, openSquares[i] & openSquares[j]);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Returns the first square of the given path, in the order listed in PATHS, which is set in open
+    private static int firstOpen(int path, long open) {
+        for (int square : PATHS[path]) {
+            if ((open & (1L << square)) != 0) {
+                return square;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,94 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// This player picks whichever move leads to the position its learned TicTacToeValueTable rates worst for the
+// opponent. The table is trained by TicTacToeTrainer and only read from disk when the first move is needed. Boards
+// other than the standard 3x3, or a missing table, are handed to a fallback player.
+class TicTacToeLearnedPlayer implements TicTacToePlayer {
+
+    // The table written by TicTacToeTrainer and read by this player
+    static final File FILE = new File(TicTacToeTablebase.DIRECTORY, "tictactoe-3x3x3.ttv");
+
+    private static final int[] MOVE_ORDER = TicTacToeAlphaBetaPlayer.centerOutOrder(3, 3);
+
+    private final TicTacToePlayer fallback;
+    private TicTacToeValueTable table;
+    private long nodeCount;
+
+    // Constructs a player that reads its table from FILE, using fallback when it can't play
+    TicTacToeLearnedPlayer(TicTacToePlayer fallback) {
+        this.fallback = fallback;
+    }
+
+    // Constructs a player that uses a table already in memory, as during training
+    TicTacToeLearnedPlayer(TicTacToeValueTable table, TicTacToePlayer fallback) {
+        this.table = table;
+        this.fallback = fallback;
+    }
+
+    // Returns true if a trained table has been saved
+    static boolean isAvailable() {
+        return FILE.isFile();
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board) {
+        return chooseMove(board, NO_DEADLINE);
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board, long deadline) {
+        if (board.getRows() != 3 || board.getColumns() != 3 || board.getK() != 3 || getTable() == null) {
+            return fallback.chooseMove(board, deadline);
+        }
+        nodeCount += board.getNumSquares() - board.getNumMoves();
+        return bestMove(board, table);
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount + fallback.getNodeCount();
+    }
+
+    // Returns the legal move on board whose resulting position is worth most to the side to move according to table
+    static int bestMove(TicTacToeBoard board, TicTacToeValueTable table) {
+        int bestMove = -1;
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int square : MOVE_ORDER) {
+            if (board.isLegalMove(square)) {
+                float value = moveValue(board, square, table);
+                if (value > bestValue) {
+                    bestValue = value;
+                    bestMove = square;
+                }
+            }
+        }
+        return bestMove;
+    }
+
+    // Returns what moving in square is worth to the side to move: 1 for an immediate win, 0 for an immediate draw,
+    // and otherwise the negation of the resulting position's value to the opponent
+    static float moveValue(TicTacToeBoard board, int square, TicTacToeValueTable table) {
+        board.play(square);
+        WinCondition status = board.getGameStatus();
+        float value = status == WinCondition.NONE ? -table.get(TicTacToeValueTable.index(board)) :
+                status == WinCondition.DRAW ? 0 : 1;
+        board.undo(square);
+        return value;
+    }
+
+    // Reads the table from FILE the first time it is needed, returning null if it hasn't been trained
+    private TicTacToeValueTable getTable() {
+        if (table == null && FILE.isFile()) {
+            try {
+                table = TicTacToeValueTable.load(FILE);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return table;
+    }
+
+}
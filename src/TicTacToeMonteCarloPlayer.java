@@ -0,0 +1,176 @@
+import java.util.SplittableRandom;
+
+// This player uses Monte Carlo tree search (UCT): it repeatedly walks down the most promising branch of a search
+// tree, finishes the game with random moves, and records the result, then plays the most visited move. The tree is
+// held in parallel arrays and reused across moves so that a search creates no objects per iteration. When given a
+// deadline, the search stops early and plays the best move found so far.
+class TicTacToeMonteCarloPlayer implements TicTacToePlayer {
+
+    // Balances exploring rarely tried moves against exploiting moves that have done well so far
+    private static final double EXPLORATION = 1.4;
+
+    // The clock is only checked once every this many iterations, since reading it costs more than an iteration
+    private static final int ITERATIONS_PER_CLOCK_CHECK = 64;
+
+    private final int iterations;
+    private final SplittableRandom random;
+    private long nodeCount;
+
+    // Each tree node is an index into these arrays. Children are linked through firstChild and nextSibling.
+    private int[] move;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] visits;
+    private double[] wins;
+    private long[] untried;
+    private int size;
+
+    // Holds the squares played during one iteration so that they can be undone afterwards
+    private final int[] path = new int[64];
+    private final int[] pathNodes = new int[65];
+
+    // Constructs a player that runs the given number of iterations per move
+    TicTacToeMonteCarloPlayer(int iterations) {
+        this(iterations, new SplittableRandom());
+    }
+
+    // Constructs a player with its own source of random numbers, so that games can be repeated
+    TicTacToeMonteCarloPlayer(int iterations, SplittableRandom random) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1");
+        }
+        this.iterations = iterations;
+        this.random = random;
+        move = new int[iterations + 1];
+        firstChild = new int[iterations + 1];
+        nextSibling = new int[iterations + 1];
+        visits = new int[iterations + 1];
+        wins = new double[iterations + 1];
+        untried = new long[iterations + 1];
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board) {
+        return chooseMove(board, NO_DEADLINE);
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board, long deadline) {
+        size = 0;
+        int root = newNode(-1, board.getEmptySquares());
+        for (int i = 0 ; i < iterations ; i++) {
+            if (i % ITERATIONS_PER_CLOCK_CHECK == 0 && i > 0 && TicTacToePlayer.isOutOfTime(deadline)) {
+                break;
+            }
+            iterate(board, root);
+        }
+
+        // The most visited move is the most reliable choice
+        int best = -1;
+        for (int child = firstChild[root] ; child >= 0 ; child = nextSibling[child]) {
+            if (best < 0 || visits[child] > visits[best]) {
+                best = child;
+            }
+        }
+        return move[best];
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    // Runs one select, expand, simulate, and backpropagate cycle starting from board, then restores board
+    private void iterate(TicTacToeBoard board, int root) {
+        int depth = 0;
+        int node = root;
+        pathNodes[0] = root;
+
+        // Selection: descends through fully expanded nodes by the UCT formula
+        while (untried[node] == 0 && firstChild[node] >= 0 && board.getGameStatus() == WinCondition.NONE) {
+            node = selectChild(node);
+            board.play(move[node]);
+            path[depth++] = move[node];
+            pathNodes[depth] = node;
+        }
+
+        // Expansion: adds one untried move as a new child
+        if (board.getGameStatus() == WinCondition.NONE && untried[node] != 0) {
+            int square = randomSquare(untried[node]);
+            untried[node] &= ~(1L << square);
+            board.play(square);
+            path[depth++] = square;
+            int child = newNode(square, board.getGameStatus() == WinCondition.NONE ? board.getEmptySquares() : 0);
+            nextSibling[child] = firstChild[node];
+            firstChild[node] = child;
+            pathNodes[depth] = child;
+        }
+        int treeDepth = depth;
+
+        // Simulation: plays random moves until the game ends
+        while (board.getGameStatus() == WinCondition.NONE) {
+            int square = randomSquare(board.getEmptySquares());
+            board.play(square);
+            path[depth++] = square;
+            nodeCount++;
+        }
+        WinCondition result = board.getGameStatus();
+
+        // Backpropagation: credits each node from the point of view of the side that moved into it
+        for (int d = treeDepth ; d >= 0 ; d--) {
+            int n = pathNodes[d];
+            visits[n]++;
+            if (d > 0) {
+                TileValue mover = board.getTileValue(path[d - 1]);
+                if (result == WinCondition.DRAW) {
+                    wins[n] += 0.5;
+                }
+                else if ((result == WinCondition.X) == (mover == TileValue.X)) {
+                    wins[n] += 1;
+                }
+            }
+        }
+
+        // Restores the board to the position at the root
+        while (depth > 0) {
+            board.undo(path[--depth]);
+        }
+    }
+
+    // Returns the child of node with the highest upper confidence bound
+    private int selectChild(int node) {
+        double logVisits = Math.log(visits[node]);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node] ; child >= 0 ; child = nextSibling[child]) {
+            double value = wins[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Adds a node for the given move, with all of the given squares still to be tried, and returns its index
+    private int newNode(int square, long untriedSquares) {
+        int n = size++;
+        move[n] = square;
+        firstChild[n] = -1;
+        nextSibling[n] = -1;
+        visits[n] = 0;
+        wins[n] = 0;
+        untried[n] = untriedSquares;
+        nodeCount++;
+        return n;
+    }
+
+    // Returns a uniformly chosen square among the bits set in squares
+    private int randomSquare(long squares) {
+        for (int skip = random.nextInt(Long.bitCount(squares)) ; skip > 0 ; skip--) {
+            squares &= squares - 1;
+        }
+        return Long.numberOfTrailingZeros(squares);
+    }
+
+}
@@ -0,0 +1,28 @@
+// A TicTacToePlayer chooses moves for whichever side is to move on a TicTacToeBoard. Implementations may play
+// and undo moves on the board while searching, but must leave it as they found it.
+interface TicTacToePlayer {
+
+    // Passed as a deadline to search without any time limit
+    long NO_DEADLINE = Long.MAX_VALUE;
+
+    // Returns the square the player wants to move in. The game on board must still be in progress.
+    int chooseMove(TicTacToeBoard board);
+
+    // Returns the square the player wants to move in, returning the best move found so far once System.nanoTime()
+    // passes deadline or the calling thread is interrupted. Players that don't search can ignore the deadline.
+    default int chooseMove(TicTacToeBoard board, long deadline) {
+        return chooseMove(board);
+    }
+
+    // Returns the total number of positions this player has examined so far, for measuring search speed
+    default long getNodeCount() {
+        return 0;
+    }
+
+    // Returns true once the calling thread has been interrupted or System.nanoTime() has passed deadline
+    static boolean isOutOfTime(long deadline) {
+        return Thread.currentThread().isInterrupted() ||
+                (deadline != NO_DEADLINE && System.nanoTime() - deadline > 0);
+    }
+
+}
@@ -0,0 +1,45 @@
+// Creates TicTacToePlayers by name, so that players can be picked on the command line or swapped into TicTacToe.
+// A name may be followed by a colon and a number to set the player's strength, e.g. "mcts:5000" or "alphabeta:4".
+final class TicTacToePlayers {
+
+    // The names of every available player
+    static final String[] NAMES = {"heuristic", "alphabeta", "mcts", "random", "tablebase", "learned"};
+
+    private static final int DEFAULT_MCTS_ITERATIONS = 1000;
+
+    private TicTacToePlayers() {
+    }
+
+    // Returns a new player of the named type
+    static TicTacToePlayer create(String name) {
+        String type = name;
+        int strength = -1;
+        int colon = name.indexOf(':');
+        if (colon >= 0) {
+            type = name.substring(0, colon);
+            try {
+                strength = Integer.parseInt(name.substring(colon + 1));
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid strength in player name: " + name);
+            }
+        }
+        switch (type) {
+            case "heuristic":
+                return new TicTacToeHeuristicPlayer();
+            case "alphabeta":
+                return strength > 0 ? new TicTacToeAlphaBetaPlayer(strength) : new TicTacToeAlphaBetaPlayer();
+            case "mcts":
+                return new TicTacToeMonteCarloPlayer(strength > 0 ? strength : DEFAULT_MCTS_ITERATIONS);
+            case "random":
+                return new TicTacToeRandomPlayer();
+            case "tablebase":
+                return new TicTacToeTablebasePlayer(new TicTacToeAlphaBetaPlayer());
+            case "learned":
+                return new TicTacToeLearnedPlayer(new TicTacToeHeuristicPlayer());
+            default:
+                throw new IllegalArgumentException("Unknown player: " + name);
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+import java.util.SplittableRandom;
+
+// This player moves in a uniformly random empty square, as a baseline for measuring the other players
+class TicTacToeRandomPlayer implements TicTacToePlayer {
+
+    private final SplittableRandom random;
+
+    TicTacToeRandomPlayer() {
+        this(new SplittableRandom());
+    }
+
+    TicTacToeRandomPlayer(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board) {
+        long empty = board.getEmptySquares();
+        for (int skip = random.nextInt(Long.bitCount(empty)) ; skip > 0 ; skip--) {
+            empty &= empty - 1;
+        }
+        return Long.numberOfTrailingZeros(empty);
+    }
+
+}
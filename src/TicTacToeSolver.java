@@ -0,0 +1,211 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// This headless program solves an m,n,k game by retrograde analysis and writes the result as a TicTacToeTablebase.
+// It starts from the layer of positions with every square filled and works back one move at a time to the empty
+// board, so that each position's value only depends on the layer after it, which has already been solved. Each
+// layer is split into blocks which are solved in parallel on all available cores.
+//
+// Usage: java TicTacToeSolver ROWS COLUMNS K [-threads N] [-out FILE]
+class TicTacToeSolver {
+
+    // Positions are handed out to threads in blocks of this size. It is a multiple of 4 so that no two threads
+    // ever write to the same byte of a layer.
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final int rows;
+    private final int columns;
+    private final int k;
+    private final int squares;
+
+    // Every line of k squares that wins the game, and the indices of the lines through each square
+    private final long[] lines;
+    private final int[][] linesThroughSquare;
+
+    TicTacToeSolver(int rows, int columns, int k) {
+        this.rows = rows;
+        this.columns = columns;
+        this.k = k;
+        squares = rows * columns;
+        lines = new TicTacToeBoard(rows, columns, k, TileValue.X).getLines();
+        linesThroughSquare = new int[squares][];
+        for (int s = 0 ; s < squares ; s++) {
+            int count = 0;
+            for (long line : lines) {
+                if ((line & (1L << s)) != 0) {
+                    count++;
+                }
+            }
+            linesThroughSquare[s] = new int[count];
+            count = 0;
+            for (int l = 0 ; l < lines.length ; l++) {
+                if ((lines[l] & (1L << s)) != 0) {
+                    linesThroughSquare[s][count++] = l;
+                }
+            }
+        }
+
+        // Checked before any work is done, since a tablebase too large to open would take hours to find out about
+        if (squares > 64 || TicTacToeTablebase.fileSize(squares) > TicTacToeTablebase.MAX_FILE_SIZE) {
+            throw new IllegalArgumentException("Board is too large to solve");
+        }
+    }
+
+    // Solves every layer and writes them to file
+    void solve(File file, int threads) throws IOException, InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            long[] offsets = new long[squares + 1];
+            long offset = TicTacToeTablebase.headerSize(squares);
+            for (int p = 0 ; p <= squares ; p++) {
+                offsets[p] = offset;
+                offset += (TicTacToeTablebase.layerSize(squares, p) + 3) / 4;
+            }
+            raf.setLength(offset);
+
+            ByteBuffer header = ByteBuffer.allocate((int) TicTacToeTablebase.headerSize(squares));
+            header.putInt(TicTacToeTablebase.MAGIC).putInt(TicTacToeTablebase.VERSION);
+            header.putInt(rows).putInt(columns).putInt(k);
+            for (long layerOffset : offsets) {
+                header.putLong(layerOffset);
+            }
+            header.flip();
+            channel.write(header, 0);
+
+            // Only the layer being solved and the one after it are ever held in memory
+            byte[] next = new byte[0];
+            for (int p = squares ; p >= 0 ; p--) {
+                long start = System.nanoTime();
+                byte[] layer = solveLayer(p, next, executor);
+                channel.write(ByteBuffer.wrap(layer), offsets[p]);
+                System.out.printf("Layer %2d: %,13d positions in %6.2f s%n", p,
+                        TicTacToeTablebase.layerSize(squares, p), (System.nanoTime() - start) / 1e9);
+                next = layer;
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Solves every position with p moves made, given the solved layer with p + 1 moves made
+    private byte[] solveLayer(int p, byte[] next, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        long size = TicTacToeTablebase.layerSize(squares, p);
+        byte[] layer = new byte[(int) ((size + 3) / 4)];
+        List<Future<?>> blocks = new ArrayList<>();
+        for (long start = 0 ; start < size ; start += BLOCK_SIZE) {
+            long blockStart = start;
+            long blockEnd = Math.min(start + BLOCK_SIZE, size);
+            blocks.add(executor.submit(() -> {
+                long[] position = new long[2];
+                for (long index = blockStart ; index < blockEnd ; index++) {
+                    TicTacToeTablebase.position(squares, p, index, position);
+                    int value = solvePosition(p, position[0], position[1], next);
+                    layer[(int) (index >>> 2)] |= value << ((index & 3) * 2);
+                }
+            }));
+        }
+        for (Future<?> block : blocks) {
+            block.get();
+        }
+        return layer;
+    }
+
+    // Returns the value for the side to move of a position with p moves made, where the first player holds first
+    // and the second player holds second
+    private int solvePosition(int p, long first, long second, byte[] next) {
+        boolean firstToMove = (p & 1) == 0;
+        long mover = firstToMove ? first : second;
+        long opponent = firstToMove ? second : first;
+
+        // If the previous move completed a line the game is already lost. If the side to move already has a line,
+        // the game would have ended before now, so the position can't be reached.
+        boolean moverHasLine = false;
+        boolean opponentHasLine = false;
+        boolean blocked = true;
+        for (long line : lines) {
+            moverHasLine |= (line & mover) == line;
+            opponentHasLine |= (line & opponent) == line;
+            blocked &= (line & mover) != 0 && (line & opponent) != 0;
+        }
+        if (moverHasLine) {
+            return TicTacToeTablebase.INVALID;
+        }
+        else if (opponentHasLine) {
+            return TicTacToeTablebase.LOSS;
+        }
+        else if (blocked) {
+            // Once every line holds moves from both players the game is declared a draw, as in TicTacToeBoard
+            return TicTacToeTablebase.DRAW;
+        }
+
+        int best = TicTacToeTablebase.LOSS;
+        long empty = ~(first | second) & (squares == 64 ? -1L : (1L << squares) - 1);
+        for ( ; empty != 0 ; empty &= empty - 1) {
+            int square = Long.numberOfTrailingZeros(empty);
+            long moved = mover | (1L << square);
+            for (int l : linesThroughSquare[square]) {
+                if ((lines[l] & moved) == lines[l]) {
+                    return TicTacToeTablebase.WIN;
+                }
+            }
+
+            // The child's value is from the opponent's point of view, so a loss for them is a win here
+            long childFirst = firstToMove ? moved : first;
+            long childSecond = firstToMove ? second : moved;
+            long childIndex = TicTacToeTablebase.index(childFirst, childSecond);
+            int childValue = (next[(int) (childIndex >>> 2)] >>> ((childIndex & 3) * 2)) & 3;
+            if (childValue != TicTacToeTablebase.INVALID) {
+                best = Math.max(best, 4 - childValue);
+            }
+            if (best == TicTacToeTablebase.WIN) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 3) {
+            System.err.println("Usage: java TicTacToeSolver ROWS COLUMNS K [-threads N] [-out FILE]");
+            System.exit(1);
+        }
+        int rows = Integer.parseInt(args[0]);
+        int columns = Integer.parseInt(args[1]);
+        int k = Integer.parseInt(args[2]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        File file = TicTacToeTablebase.fileFor(rows, columns, k);
+        for (int i = 3 ; i < args.length ; i++) {
+            switch (args[i]) {
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-out":
+                    file = new File(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+
+        TicTacToeSolver solver = new TicTacToeSolver(rows, columns, k);
+        long start = System.nanoTime();
+        solver.solve(file, threads);
+        System.out.printf("Wrote %s (%,d bytes) in %.1f s%n", file, file.length(), (System.nanoTime() - start) / 1e9);
+    }
+
+}
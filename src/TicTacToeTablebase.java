@@ -0,0 +1,205 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// A tablebase stores the result of perfect play from every position of one m,n,k game, as written by
+// TicTacToeSolver. Positions are grouped into layers by the number of moves made, and each layer is indexed by
+// ranking which squares are occupied and then which of those belong to the player who moved first, so no position
+// needs to be stored alongside its value. Values take 2 bits each, four to a byte, and the file is memory-mapped so
+// that a lookup costs a few arithmetic operations and one read, with the operating system paging data in as needed.
+//
+// File layout (big-endian): magic, version, rows, columns, k (ints), then for each layer 0..rows*columns its byte
+// offset in the file (longs), then the packed values of each layer in turn.
+class TicTacToeTablebase {
+
+    // Values stored for each position, from the point of view of the side to move
+    static final int INVALID = 0;
+    static final int LOSS = 1;
+    static final int DRAW = 2;
+    static final int WIN = 3;
+
+    static final int MAGIC = 0x54545442;
+    static final int VERSION = 1;
+
+    // A tablebase is mapped in one piece, so its file can be no larger than this many bytes
+    static final long MAX_FILE_SIZE = Integer.MAX_VALUE;
+
+    // Tablebase files are looked for in this directory, relative to the working directory
+    static final File DIRECTORY = new File("tablebases");
+
+    // BINOMIAL[n][r] is n choose r, for every n and r up to 64
+    private static final long[][] BINOMIAL = new long[65][65];
+
+    static {
+        for (int n = 0 ; n <= 64 ; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int r = 1 ; r <= n ; r++) {
+                BINOMIAL[n][r] = BINOMIAL[n - 1][r - 1] + BINOMIAL[n - 1][r];
+            }
+        }
+    }
+
+    private final int rows;
+    private final int columns;
+    private final int k;
+    private final long[] layerOffsets;
+    private final MappedByteBuffer data;
+
+    private TicTacToeTablebase(int rows, int columns, int k, long[] layerOffsets, MappedByteBuffer data) {
+        this.rows = rows;
+        this.columns = columns;
+        this.k = k;
+        this.layerOffsets = layerOffsets;
+        this.data = data;
+    }
+
+    // Returns the file the tablebase for the given board size is stored in
+    static File fileFor(int rows, int columns, int k) {
+        return new File(DIRECTORY, "tictactoe-" + rows + "x" + columns + "x" + k + ".ttb");
+    }
+
+    // Memory-maps the given tablebase file and checks that it is valid
+    static TicTacToeTablebase open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            if (channel.size() > MAX_FILE_SIZE) {
+                throw new IOException(file + " is too large to map");
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.BIG_ENDIAN);
+            if (data.getInt() != MAGIC || data.getInt() != VERSION) {
+                throw new IOException(file + " is not a TicTacToe tablebase");
+            }
+            int rows = data.getInt();
+            int columns = data.getInt();
+            int k = data.getInt();
+            long[] layerOffsets = new long[rows * columns + 1];
+            for (int p = 0 ; p < layerOffsets.length ; p++) {
+                layerOffsets[p] = data.getLong();
+                long end = layerOffsets[p] + (layerSize(rows * columns, p) + 3) / 4;
+                if (layerOffsets[p] < headerSize(rows * columns) || end > channel.size()) {
+                    throw new IOException(file + " is truncated or corrupt");
+                }
+            }
+            return new TicTacToeTablebase(rows, columns, k, layerOffsets, data);
+        }
+    }
+
+    // Returns true if this tablebase was solved for a board of the given size
+    boolean matches(int rows, int columns, int k) {
+        return this.rows == rows && this.columns == columns && this.k == k;
+    }
+
+    // Returns the value for the side to move of the position where the player who moved first holds the squares in
+    // first and the other player holds the squares in second
+    int lookup(long first, long second) {
+        int p = Long.bitCount(first | second);
+        long index = index(first, second);
+        int packed = data.get((int) (layerOffsets[p] + (index >>> 2)));
+        return (packed >>> ((index & 3) * 2)) & 3;
+    }
+
+    // Returns the value for the side to move on the given board
+    int lookup(TicTacToeBoard board) {
+        boolean xFirst = board.getFirstMove() == TileValue.X;
+        return lookup(xFirst ? board.getXBits() : board.getOBits(), xFirst ? board.getOBits() : board.getXBits());
+    }
+
+    // Returns the number of bytes taken by the header of a tablebase with the given number of squares
+    static long headerSize(int squares) {
+        return 5 * 4 + (squares + 1) * 8L;
+    }
+
+    // Returns the number of bytes taken by a whole tablebase with the given number of squares, or Long.MAX_VALUE if
+    // that is too many to count in a long
+    static long fileSize(int squares) {
+        long size = headerSize(squares);
+        try {
+            for (int p = 0 ; p <= squares ; p++) {
+                long positions = Math.multiplyExact(BINOMIAL[squares][p], BINOMIAL[p][(p + 1) / 2]);
+                size = Math.addExact(size, positions / 4 + (positions % 4 != 0 ? 1 : 0));
+            }
+        }
+        catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+        return size;
+    }
+
+    // Returns the number of positions with p moves made on a board of the given number of squares: every way of
+    // choosing the occupied squares, times every way of choosing which of those the first player holds
+    static long layerSize(int squares, int p) {
+        return BINOMIAL[squares][p] * BINOMIAL[p][(p + 1) / 2];
+    }
+
+    // Returns the index within its layer of the position where the first player holds first and the second player
+    // holds second. The first player always holds (p + 1) / 2 of the p occupied squares.
+    static long index(long first, long second) {
+        long occupied = first | second;
+        int p = Long.bitCount(occupied);
+        return rank(occupied) * BINOMIAL[p][(p + 1) / 2] + rank(compress(first, occupied));
+    }
+
+    // Writes into position the first player's squares (index 0) and second player's squares (index 1) for the
+    // given index within layer p of a board with the given number of squares
+    static void position(int squares, int p, long index, long[] position) {
+        long perOccupied = BINOMIAL[p][(p + 1) / 2];
+        long occupied = unrank(index / perOccupied, p, squares);
+        long first = expand(unrank(index % perOccupied, (p + 1) / 2, p), occupied);
+        position[0] = first;
+        position[1] = occupied & ~first;
+    }
+
+    // Ranks a set of bits among all sets of the same size in colexicographic order
+    private static long rank(long mask) {
+        long rank = 0;
+        int i = 1;
+        for ( ; mask != 0 ; mask &= mask - 1) {
+            rank += BINOMIAL[Long.numberOfTrailingZeros(mask)][i++];
+        }
+        return rank;
+    }
+
+    // Returns the set of r bits below bit n with the given colexicographic rank
+    private static long unrank(long rank, int r, int n) {
+        long mask = 0;
+        for (int c = n - 1 ; r > 0 ; c--) {
+            if (BINOMIAL[c][r] <= rank) {
+                rank -= BINOMIAL[c][r];
+                mask |= 1L << c;
+                r--;
+            }
+        }
+        return mask;
+    }
+
+    // Packs the bits of value that lie within mask down into the lowest bits, keeping their order
+    private static long compress(long value, long mask) {
+        long result = 0;
+        int bit = 0;
+        for ( ; mask != 0 ; mask &= mask - 1) {
+            if ((value & Long.lowestOneBit(mask)) != 0) {
+                result |= 1L << bit;
+            }
+            bit++;
+        }
+        return result;
+    }
+
+    // Spreads the lowest bits of value out into the positions of the set bits of mask; the reverse of compress()
+    private static long expand(long value, long mask) {
+        long result = 0;
+        for ( ; mask != 0 && value != 0 ; mask &= mask - 1) {
+            if ((value & 1) != 0) {
+                result |= Long.lowestOneBit(mask);
+            }
+            value >>>= 1;
+        }
+        return result;
+    }
+
+}
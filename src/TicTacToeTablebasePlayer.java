@@ -0,0 +1,86 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// This player looks up the result of every possible move in a TicTacToeTablebase and picks the best, so it plays
+// perfectly without searching. The tablebase for the board is only opened when the first move is needed, and if
+// there is no tablebase for the board the player falls back on another player.
+class TicTacToeTablebasePlayer implements TicTacToePlayer {
+
+    private final TicTacToePlayer fallback;
+    private TicTacToeTablebase tablebase;
+    private long nodeCount;
+
+    // Squares are tried from the center outwards, so that among equally good moves the most natural one is played
+    private int[] moveOrder = new int[0];
+
+    // Constructs a player that reads tablebases from TicTacToeTablebase.DIRECTORY, using fallback for boards that
+    // haven't been solved
+    TicTacToeTablebasePlayer(TicTacToePlayer fallback) {
+        this.fallback = fallback;
+    }
+
+    // Returns true if a tablebase has been solved for a board of the given size
+    static boolean isAvailable(int rows, int columns, int k) {
+        return TicTacToeTablebase.fileFor(rows, columns, k).isFile();
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board) {
+        return chooseMove(board, NO_DEADLINE);
+    }
+
+    @Override
+    public int chooseMove(TicTacToeBoard board, long deadline) {
+        TicTacToeTablebase tablebase = getTablebase(board);
+        if (tablebase == null) {
+            return fallback.chooseMove(board, deadline);
+        }
+        if (moveOrder.length != board.getNumSquares()) {
+            moveOrder = TicTacToeAlphaBetaPlayer.centerOutOrder(board.getRows(), board.getColumns());
+        }
+
+        // Values of children are from the opponent's point of view, so the lowest value is the best move. Moves that
+        // win straight away score lowest of all, so that a won game is never drawn out.
+        int bestMove = -1;
+        int bestValue = Integer.MAX_VALUE;
+        for (int square : moveOrder) {
+            if (board.isLegalMove(square)) {
+                board.play(square);
+                nodeCount++;
+                WinCondition status = board.getGameStatus();
+                int value = status == WinCondition.NONE ? tablebase.lookup(board) :
+                        status == WinCondition.DRAW ? TicTacToeTablebase.DRAW : 0;
+                board.undo(square);
+                if (value < bestValue) {
+                    bestValue = value;
+                    bestMove = square;
+                }
+            }
+        }
+        return bestMove;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount + fallback.getNodeCount();
+    }
+
+    // Opens the tablebase for the board the first time it is needed, returning null if there isn't one
+    private TicTacToeTablebase getTablebase(TicTacToeBoard board) {
+        if (tablebase == null || !tablebase.matches(board.getRows(), board.getColumns(), board.getK())) {
+            File file = TicTacToeTablebase.fileFor(board.getRows(), board.getColumns(), board.getK());
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                tablebase = TicTacToeTablebase.open(file);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return tablebase;
+    }
+
+}
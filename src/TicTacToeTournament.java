@@ -0,0 +1,222 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// This headless program plays every pair of TicTacToePlayers against each other on all available cores and
+// reports how often each wins, along with how long each takes to think and how many positions per second it searches.
+//
+// Usage: java TicTacToeTournament [-games N] [-board ROWS COLUMNS K] [-threads N] [PLAYER ...]
+// where each PLAYER is a name understood by TicTacToePlayers.create(), by default all of TicTacToePlayers.NAMES
+class TicTacToeTournament {
+
+    // Games are handed out to threads in batches of this size, so that one slow matchup doesn't hold up the others
+    private static final int BATCH_SIZE = 1000;
+
+    // Each player is given this long to choose an opening move when checking it can play on the chosen board
+    private static final long CHECK_MILLIS = 100;
+
+    private final String[] players;
+    private final int rows;
+    private final int columns;
+    private final int k;
+
+    // Indexed by [X player][O player]: wins for X, wins for O, and draws
+    private final long[][] xWins;
+    private final long[][] oWins;
+    private final long[][] draws;
+
+    // Indexed by player: moves made, total nanoseconds spent choosing them, and positions searched
+    private final long[] moves;
+    private final long[] thinkNanos;
+    private final long[] nodes;
+
+    TicTacToeTournament(String[] players, int rows, int columns, int k) {
+        this.players = players;
+        this.rows = rows;
+        this.columns = columns;
+        this.k = k;
+        xWins = new long[players.length][players.length];
+        oWins = new long[players.length][players.length];
+        draws = new long[players.length][players.length];
+        moves = new long[players.length];
+        thinkNanos = new long[players.length];
+        nodes = new long[players.length];
+    }
+
+    // Plays gamesPerMatch games for every ordered pair of players, splitting them into batches across threads
+    void run(int gamesPerMatch, int threads) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Batch>> results = new ArrayList<>();
+            for (int x = 0 ; x < players.length ; x++) {
+                for (int o = 0 ; o < players.length ; o++) {
+                    for (int played = 0 ; played < gamesPerMatch ; played += BATCH_SIZE) {
+                        Batch batch = new Batch(x, o, Math.min(BATCH_SIZE, gamesPerMatch - played));
+                        results.add(executor.submit(batch::play, batch));
+                    }
+                }
+            }
+            for (Future<Batch> result : results) {
+                add(result.get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Adds the results of a finished batch to the totals
+    private void add(Batch batch) {
+        xWins[batch.x][batch.o] += batch.xWins;
+        oWins[batch.x][batch.o] += batch.oWins;
+        draws[batch.x][batch.o] += batch.draws;
+        moves[batch.x] += batch.moves[0];
+        moves[batch.o] += batch.moves[1];
+        thinkNanos[batch.x] += batch.thinkNanos[0];
+        thinkNanos[batch.o] += batch.thinkNanos[1];
+        nodes[batch.x] += batch.nodes[0];
+        nodes[batch.o] += batch.nodes[1];
+    }
+
+    // Prints the win/draw/loss table and the cost of each player
+    void printResults() {
+        int width = 8;
+        for (String player : players) {
+            width = Math.max(width, player.length() + 2);
+        }
+        String cell = "%-" + width + "s";
+
+        System.out.printf("Results on a %dx%d board, %d in a row to win (X%%/draw%%/O%%, X moves first)%n",
+                rows, columns, k);
+        System.out.printf(cell, "X \\ O");
+        for (String player : players) {
+            System.out.printf("%20s", player);
+        }
+        System.out.println();
+        for (int x = 0 ; x < players.length ; x++) {
+            System.out.printf(cell, players[x]);
+            for (int o = 0 ; o < players.length ; o++) {
+                double total = xWins[x][o] + oWins[x][o] + draws[x][o];
+                System.out.printf("%20s", String.format("%.1f/%.1f/%.1f", 100 * xWins[x][o] / total,
+                        100 * draws[x][o] / total, 100 * oWins[x][o] / total));
+            }
+            System.out.println();
+        }
+
+        System.out.println();
+        System.out.printf(cell + "%16s%16s%16s%n", "Player", "Moves", "us/move", "nodes/s");
+        for (int p = 0 ; p < players.length ; p++) {
+            double micros = thinkNanos[p] / 1000.0 / Math.max(moves[p], 1);
+            String nodesPerSecond = nodes[p] == 0 ? "-" :
+                    String.format("%.0f", nodes[p] / (thinkNanos[p] / 1e9));
+            System.out.printf(cell + "%16d%16.2f%16s%n", players[p], moves[p], micros, nodesPerSecond);
+        }
+    }
+
+    // A batch of games between one X player and one O player, played on a single thread with its own players
+    private class Batch {
+        private final int x;
+        private final int o;
+        private final int games;
+
+        private long xWins;
+        private long oWins;
+        private long draws;
+
+        // Index 0 is the X player, index 1 the O player
+        private final long[] moves = new long[2];
+        private final long[] thinkNanos = new long[2];
+        private final long[] nodes = new long[2];
+
+        Batch(int x, int o, int games) {
+            this.x = x;
+            this.o = o;
+            this.games = games;
+        }
+
+        void play() {
+            TicTacToePlayer[] sides = {TicTacToePlayers.create(players[x]), TicTacToePlayers.create(players[o])};
+            TicTacToeBoard board = new TicTacToeBoard(rows, columns, k, TileValue.X);
+            for (int g = 0 ; g < games ; g++) {
+                while (board.getGameStatus() == WinCondition.NONE) {
+                    int side = board.getNumMoves() & 1;
+                    long start = System.nanoTime();
+                    int square = sides[side].chooseMove(board);
+                    thinkNanos[side] += System.nanoTime() - start;
+                    moves[side]++;
+                    board.play(square);
+                }
+                if (board.getGameStatus() == WinCondition.X) {
+                    xWins++;
+                }
+                else if (board.getGameStatus() == WinCondition.O) {
+                    oWins++;
+                }
+                else {
+                    draws++;
+                }
+                board = new TicTacToeBoard(rows, columns, k, TileValue.X);
+            }
+            nodes[0] = sides[0].getNodeCount();
+            nodes[1] = sides[1].getNodeCount();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int games = 10000;
+        int rows = 3;
+        int columns = 3;
+        int k = 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> players = new ArrayList<>();
+        for (int i = 0 ; i < args.length ; i++) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "-board":
+                    rows = Integer.parseInt(args[++i]);
+                    columns = Integer.parseInt(args[++i]);
+                    k = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    players.add(args[i]);
+            }
+        }
+        if (players.isEmpty()) {
+            for (String name : TicTacToePlayers.NAMES) {
+                players.add(name);
+            }
+        }
+
+        // Checks every player can play on the chosen board before starting, rather than failing partway through. The
+        // check only needs the player to start on a move, so a search is cut short rather than run to the end.
+        TicTacToeBoard empty = new TicTacToeBoard(rows, columns, k, TileValue.X);
+        for (String player : players) {
+            try {
+                TicTacToePlayers.create(player).chooseMove(empty,
+                        System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CHECK_MILLIS));
+            }
+            catch (IllegalArgumentException e) {
+                System.err.println(player + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        TicTacToeTournament tournament = new TicTacToeTournament(players.toArray(new String[0]), rows, columns, k);
+        long start = System.nanoTime();
+        tournament.run(games, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        tournament.printResults();
+        System.out.printf("%nPlayed %d games on %d threads in %.1f s%n",
+                (long) games * players.size() * players.size(), threads, seconds);
+    }
+
+}
@@ -0,0 +1,126 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// This headless program teaches a TicTacToeValueTable to play the standard 3x3 game by self-play. Every thread plays
+// its own games against itself, mostly choosing the move the table currently rates best and sometimes a random one
+// so that new lines get explored. After each move the value of the position just left is nudged towards the value
+// of the best move from it (temporal-difference learning), and all threads share one lock-free table.
+//
+// Usage: java TicTacToeTrainer [-games N] [-threads N] [-out FILE]
+class TicTacToeTrainer {
+
+    // How far each update moves a value towards its target
+    private static final float LEARNING_RATE = 0.1f;
+
+    // How often a random move is played instead of the best one
+    private static final double EXPLORATION_RATE = 0.1;
+
+    private final TicTacToeValueTable table = new TicTacToeValueTable();
+
+    // Plays the given number of self-play games, split evenly across threads
+    void train(long games, int threads) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            SplittableRandom seeds = new SplittableRandom();
+            for (int t = 0 ; t < threads ; t++) {
+                long share = games / threads + (t < games % threads ? 1 : 0);
+                SplittableRandom random = seeds.split();
+                workers.add(executor.submit(() -> {
+                    for (long g = 0 ; g < share ; g++) {
+                        playGame(random);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Plays one self-play game, updating the table after every move
+    private void playGame(SplittableRandom random) {
+        TicTacToeBoard board = new TicTacToeBoard(3, 3, 3, random.nextBoolean() ? TileValue.X : TileValue.O);
+        int[] legal = new int[9];
+        while (board.getGameStatus() == WinCondition.NONE) {
+            int numLegal = 0;
+            int bestMove = -1;
+            float bestValue = Float.NEGATIVE_INFINITY;
+            for (int square = 0 ; square < 9 ; square++) {
+                if (board.isLegalMove(square)) {
+                    legal[numLegal++] = square;
+                    float value = TicTacToeLearnedPlayer.moveValue(board, square, table);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        bestMove = square;
+                    }
+                }
+            }
+            table.update(TicTacToeValueTable.index(board), bestValue, LEARNING_RATE);
+            board.play(random.nextDouble() < EXPLORATION_RATE ? legal[random.nextInt(numLegal)] : bestMove);
+        }
+    }
+
+    // Plays the learned policy greedily against a random player, as both X and O, and returns how many it lost
+    int countLossesAgainstRandom(int games) {
+        TicTacToePlayer learned = new TicTacToeLearnedPlayer(table, new TicTacToeRandomPlayer());
+        TicTacToePlayer random = new TicTacToeRandomPlayer();
+        int losses = 0;
+        for (int g = 0 ; g < games ; g++) {
+            TicTacToeBoard board = new TicTacToeBoard(3, 3, 3, TileValue.X);
+            TileValue learnedToken = g % 2 == 0 ? TileValue.X : TileValue.O;
+            while (board.getGameStatus() == WinCondition.NONE) {
+                TicTacToePlayer player = board.getNextMove() == learnedToken ? learned : random;
+                board.play(player.chooseMove(board));
+            }
+            WinCondition status = board.getGameStatus();
+            if (status != WinCondition.DRAW && (status == WinCondition.X) != (learnedToken == TileValue.X)) {
+                losses++;
+            }
+        }
+        return losses;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        long games = 2_000_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File file = TicTacToeLearnedPlayer.FILE;
+        for (int i = 0 ; i < args.length ; i++) {
+            switch (args[i]) {
+                case "-games":
+                    games = Long.parseLong(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-out":
+                    file = new File(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+
+        TicTacToeTrainer trainer = new TicTacToeTrainer();
+        long start = System.nanoTime();
+        trainer.train(games, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Trained on %,d games on %d threads in %.1f s (%,.0f games/s)%n",
+                games, threads, seconds, games / seconds);
+        System.out.printf("Lost %d of 10,000 games against a random player%n", trainer.countLossesAgainstRandom(10000));
+        trainer.table.save(file);
+        System.out.printf("Wrote %s (%,d bytes)%n", file, file.length());
+    }
+
+}
@@ -1,7 +1,10 @@
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
+import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
@@ -11,38 +14,54 @@ import javafx.scene.text.Text;
 import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 class TicTacToeUI extends Application {
 
     // These constants will be used to create the dimensions of the game board
-    private final double SQUARE_SIZE = 200;
+    private final double BOARD_SIZE = 600;
     private final double BORDER = 25;
 
+    // The board sizes that can be chosen, as {rows, columns, number in a row needed to win}
+    private static final int[][] BOARD_SIZES = {{3, 3, 3}, {4, 4, 3}, {4, 5, 4}, {5, 5, 4}, {7, 7, 5}, {8, 8, 5}};
+
+    // The size of each square on the current board, chosen so that the whole board fits within BOARD_SIZE
+    private double squareSize;
+
+    // The computer is given this long to think about each move
+    private static final long COMPUTER_TIME_BUDGET_MILLIS = 1000;
+
     // The TicTacToe object contains all information about the state of the game
     private TicTacToe board;
 
+    // The computer thinks on this thread so that the window stays responsive. The thread is a daemon so that it
+    // never keeps the program running after the window closes.
+    private final ExecutorService computerThread = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TicTacToe computer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // These nodes are all used in scene1 to select how the game will be played
     private Text greeting = new Text("Select mode of play:");
     private Button pvp = new Button("Player vs. Player");
     private Button pvc = new Button("Player vs. Computer");
     private Button playerFirst = new Button("Player goes first");
     private Button computerFirst = new Button("Computer goes first");
+    private ChoiceBox<String> boardSize = new ChoiceBox<>();
     private FlowPane buttons = new FlowPane(pvp, pvc);
-    private VBox pane1 = new VBox(greeting, buttons);
+    private VBox pane1 = new VBox(greeting, boardSize, buttons);
     private Scene scene1 = new Scene(pane1, 500, 400);
 
-    // These nodes are all used in scene2 to construct the game board
-    private Line vLine1 = new Line(SQUARE_SIZE + BORDER, BORDER,
-            SQUARE_SIZE + BORDER, 3 * SQUARE_SIZE + BORDER);
-    private Line vLine2 = new Line(2 * SQUARE_SIZE + BORDER, BORDER,
-            2 * SQUARE_SIZE + BORDER, 3 * SQUARE_SIZE + BORDER);
-    private Line hLine1 = new Line(BORDER, SQUARE_SIZE + BORDER,
-            3 * SQUARE_SIZE + BORDER, SQUARE_SIZE + BORDER);
-    private Line hLine2 = new Line(BORDER, 2 * SQUARE_SIZE + BORDER,
-            3 * SQUARE_SIZE + BORDER, 2 * SQUARE_SIZE + BORDER);
-    private Pane grid = new Pane(vLine1, vLine2, hLine1, hLine2);
+    // These nodes are all used in scene2 to construct the game board. The grid lines are created once per game,
+    // and each X or O is added to letters once, when it is played.
+    private Pane grid = new Pane();
     private Pane letters = new Pane();
     private StackPane pane2 = new StackPane(grid, letters);
-    private Scene scene2 = new Scene(pane2, SQUARE_SIZE * 3 + BORDER * 2, SQUARE_SIZE * 3 + BORDER * 2);
+    private Scene scene2 = new Scene(pane2, BOARD_SIZE + BORDER * 2, BOARD_SIZE + BORDER * 2);
 
     // These nodes appear only once the game is over
     private Text gameOverMessage = new Text();
@@ -71,11 +90,12 @@ class TicTacToeUI extends Application {
         gameOverPane.setAlignment(Pos.CENTER);
         gameOverPane.setSpacing(40);
 
-        // Sets stroke width for the lines in grid
-        vLine1.setStrokeWidth(5);
-        vLine2.setStrokeWidth(5);
-        hLine1.setStrokeWidth(5);
-        hLine2.setStrokeWidth(5);
+        // Fills in the board sizes that can be chosen, starting with the standard board
+        for (int[] size : BOARD_SIZES) {
+            boardSize.getItems().add(size[0] + " x " + size[1] + ", " + size[2] + " in a row");
+        }
+        boardSize.getSelectionModel().select(0);
+        boardSize.setStyle("-fx-font-size: 20");
 
         // If Player vs. Computer is selected, updates the buttons pane to include options for who goes first
         pvc.setOnAction(e -> {
@@ -83,76 +103,35 @@ class TicTacToeUI extends Application {
             buttons.getChildren().addAll(playerFirst, computerFirst);
         });
 
-        // Initializes board with selected boolean and changes the scene to scene2 (the game board)
-        pvp.setOnAction(e -> {
-            board = new TicTacToe(true, false);
-            primaryStage.setScene(scene2);
-        });
-        playerFirst.setOnAction(e -> {
-            board = new TicTacToe(false, false);
-            primaryStage.setScene(scene2);
-        });
-        computerFirst.setOnAction(e -> {
-            board = new TicTacToe(false, true);
-            primaryStage.setScene(scene2);
-
-            // The call to drawBoard() is added if the computer goes first so that the computer's move gets displayed
-            drawBoard();
-        });
+        // Initializes board with selected size and booleans and changes the scene to scene2 (the game board)
+        pvp.setOnAction(e -> startGame(primaryStage, true, false));
+        playerFirst.setOnAction(e -> startGame(primaryStage, false, false));
+        computerFirst.setOnAction(e -> startGame(primaryStage, false, true));
 
         // This action listener is used to detect player moves on the board
         pane2.setOnMouseClicked(e -> {
 
-            // Only activates if the game is not yet over
-            if (board.getGameStatus() == WinCondition.NONE) {
-
-                // Detects the coordinates of the click
-                double x = e.getX();
-                double y = e.getY();
-
-                // Iterates through each space on the grid to see if the click occurred within one of them
-                for (int i = 0; i < 3; i++) {
-                    for (int j = 0; j < 3; j++) {
-
-                        // Click must not have occurred too close to a grid line or edge for it to register
-                        double xMin = j * SQUARE_SIZE + 2 * BORDER;
-                        double xMax = (j + 1) * SQUARE_SIZE;
-                        double yMin = i * SQUARE_SIZE + 2 * BORDER;
-                        double yMax = (i + 1) * SQUARE_SIZE;
-                        if (x > xMin && x < xMax && y > yMin && y < yMax) {
-
-                            // Attempts a move at the selected square and redraws the board
-                            board.makeMove(i, j);
-                            drawBoard();
-
-                            // If the game is now over, grey out the board and display gameOverPane
-                            if (board.getGameStatus() != WinCondition.NONE) {
-                                letters.setOpacity(0.3);
-                                grid.setOpacity(0.3);
-                                pane2.getChildren().add(gameOverPane);
-
-                                // Sets text on gameOverPane to reflect the win condition and the mode of play
-                                if (board.getGameStatus() == WinCondition.DRAW) {
-                                    gameOverMessage.setText("DRAW");
-                                }
-                                else if (board.isTwoPlayerMode()) {
-                                    if (board.getGameStatus() == WinCondition.X) {
-                                        gameOverMessage.setText("X wins!");
-                                    }
-                                    else {
-                                        gameOverMessage.setText("O wins!");
-                                    }
-                                }
-                                else {
-                                    if (board.getGameStatus() == WinCondition.X) {
-                                        gameOverMessage.setText("You win!\nI am humbled by\nyour intelligence!");
-                                    }
-                                    else {
-                                        gameOverMessage.setText("You lose!\nAnother demonstration\nof AI superiority!");
-                                    }
-                                }
-                            }
-                        }
+            // Only activates if the game is not yet over and the computer isn't thinking
+            if (board.getGameStatus() == WinCondition.NONE && !board.isComputerTurn()) {
+
+                // Works out which square the click landed in from its coordinates
+                double x = e.getX() - BORDER;
+                double y = e.getY() - BORDER;
+                int i = (int) Math.floor(y / squareSize);
+                int j = (int) Math.floor(x / squareSize);
+
+                // Click must not have occurred too close to a grid line or edge for it to register
+                double margin = markInset();
+                double xWithin = x - j * squareSize;
+                double yWithin = y - i * squareSize;
+                if (i >= 0 && i < board.getRows() && j >= 0 && j < board.getColumns() &&
+                        xWithin > margin && xWithin < squareSize - margin &&
+                        yWithin > margin && yWithin < squareSize - margin) {
+
+                    // Attempts a move at the selected square and draws the new token
+                    if (board.makeMove(i, j)) {
+                        drawMark(i, j);
+                        afterMove();
                     }
                 }
             }
@@ -164,6 +143,7 @@ class TicTacToeUI extends Application {
             grid.setOpacity(1);
             pane2.getChildren().remove(gameOverPane);
             letters.getChildren().clear();
+            grid.getChildren().clear();
             buttons.getChildren().clear();
             buttons.getChildren().addAll(pvp, pvc);
             primaryStage.setScene(scene1);
@@ -176,31 +156,129 @@ class TicTacToeUI extends Application {
         primaryStage.show();
     }
 
-    // This method clears the letters pane and redraws it in accordance with the state of each square within board
-    private void drawBoard() {
-        letters.getChildren().clear();
-        for (int i = 0 ; i < 3 ; i++) {
-            for (int j = 0 ; j < 3 ; j++) {
-                if (board.getTileValue(i, j) == TileValue.X) {
-                    drawX(i, j);
+    // This method starts a new game on the board size selected in scene1, draws its grid, and shows it
+    private void startGame(Stage primaryStage, boolean twoPlayerMode, boolean computerFirst) {
+        int[] size = BOARD_SIZES[Math.max(boardSize.getSelectionModel().getSelectedIndex(), 0)];
+        board = new TicTacToe(size[0], size[1], size[2], twoPlayerMode, computerFirst);
+        squareSize = BOARD_SIZE / Math.max(board.getRows(), board.getColumns());
+        drawGrid();
+        primaryStage.setScene(scene2);
+        if (board.isComputerTurn()) {
+            startComputerMove();
+        }
+    }
+
+    // This method draws the lines between the squares of the current board
+    private void drawGrid() {
+        double width = board.getColumns() * squareSize;
+        double height = board.getRows() * squareSize;
+        double strokeWidth = Math.max(squareSize / 40, 2);
+        for (int j = 1 ; j < board.getColumns() ; j++) {
+            Line vLine = new Line(j * squareSize + BORDER, BORDER, j * squareSize + BORDER, height + BORDER);
+            vLine.setStrokeWidth(strokeWidth);
+            grid.getChildren().add(vLine);
+        }
+        for (int i = 1 ; i < board.getRows() ; i++) {
+            Line hLine = new Line(BORDER, i * squareSize + BORDER, width + BORDER, i * squareSize + BORDER);
+            hLine.setStrokeWidth(strokeWidth);
+            grid.getChildren().add(hLine);
+        }
+    }
+
+    // This method either lets the computer take its turn or, if the game is now over, greys out the board and
+    // displays gameOverPane
+    private void afterMove() {
+        if (board.isComputerTurn()) {
+            startComputerMove();
+        }
+        else if (board.getGameStatus() != WinCondition.NONE) {
+            letters.setOpacity(0.3);
+            grid.setOpacity(0.3);
+            pane2.getChildren().add(gameOverPane);
+
+            // Sets text on gameOverPane to reflect the win condition and the mode of play
+            if (board.getGameStatus() == WinCondition.DRAW) {
+                gameOverMessage.setText("DRAW");
+            }
+            else if (board.isTwoPlayerMode()) {
+                if (board.getGameStatus() == WinCondition.X) {
+                    gameOverMessage.setText("X wins!");
+                }
+                else {
+                    gameOverMessage.setText("O wins!");
+                }
+            }
+            else {
+                if (board.getGameStatus() == WinCondition.X) {
+                    gameOverMessage.setText("You win!\nI am humbled by\nyour intelligence!");
                 }
-                else if (board.getTileValue(i, j) == TileValue.O) {
-                    drawO(i, j);
+                else {
+                    gameOverMessage.setText("You lose!\nAnother demonstration\nof AI superiority!");
                 }
             }
         }
     }
 
+    // This method has the computer choose its move on computerThread, then plays the move back on the JavaFX
+    // thread. Clicks on the board are ignored until then. If the computer's player fails, the rule-based player
+    // moves for it, so that the game can go on. "Play Again" is only offered once the game is over, so no game is
+    // ever abandoned while the computer is thinking.
+    private void startComputerMove() {
+        Callable<Integer> task =
+                board.computerMoveTask(TimeUnit.MILLISECONDS.toNanos(COMPUTER_TIME_BUDGET_MILLIS));
+        pane2.setCursor(Cursor.WAIT);
+        computerThread.submit(() -> {
+            int square;
+            try {
+                square = task.call();
+            }
+            catch (Exception e) {
+                square = -1;
+            }
+            int chosen = square;
+            Platform.runLater(() -> playComputerMove(chosen));
+        });
+    }
+
+    // This method plays the computer's chosen square, or the rule-based player's move if that square can't be
+    // played, and gives the board back to the player
+    private void playComputerMove(int square) {
+        pane2.setCursor(Cursor.DEFAULT);
+        if (!board.makeComputerMove(square)) {
+            square = board.fallbackComputerMove();
+            if (square < 0 || !board.makeComputerMove(square)) {
+                return;
+            }
+        }
+        drawMark(square / board.getColumns(), square % board.getColumns());
+        afterMove();
+    }
+
+    // This method adds the token just played at the given square to the letters pane, leaving the rest alone
+    private void drawMark(int i, int j) {
+        if (board.getTileValue(i, j) == TileValue.X) {
+            drawX(i, j);
+        }
+        else if (board.getTileValue(i, j) == TileValue.O) {
+            drawO(i, j);
+        }
+    }
+
+    // Returns the gap left between each token and the edges of its square, which scales with the square
+    private double markInset() {
+        return BORDER * squareSize / 200;
+    }
+
     // This method draws a red X at the given coordinates within the game board
     private void drawX(int i, int j) {
-        double leftX = j * SQUARE_SIZE + 2 * BORDER;
-        double rightX = (j + 1) * SQUARE_SIZE;
-        double topY = i * SQUARE_SIZE + 2 * BORDER;
-        double bottomY = (i + 1) * SQUARE_SIZE;
+        double leftX = j * squareSize + BORDER + markInset();
+        double rightX = (j + 1) * squareSize + BORDER - markInset();
+        double topY = i * squareSize + BORDER + markInset();
+        double bottomY = (i + 1) * squareSize + BORDER - markInset();
         Line Line1 = new Line(leftX, bottomY, rightX, topY);
         Line Line2 = new Line(leftX, topY, rightX, bottomY);
-        Line1.setStrokeWidth(10);
-        Line2.setStrokeWidth(10);
+        Line1.setStrokeWidth(squareSize / 20);
+        Line2.setStrokeWidth(squareSize / 20);
         Line1.setStroke(Color.RED);
         Line2.setStroke(Color.RED);
         letters.getChildren().addAll(Line1, Line2);
@@ -208,13 +286,13 @@ class TicTacToeUI extends Application {
 
     // This method draws a blue O at the given coordinates within the game board
     private void drawO(int i, int j) {
-        double x = (j + 0.5) * SQUARE_SIZE + BORDER;
-        double y = (i + 0.5) * SQUARE_SIZE + BORDER;
-        double radius = SQUARE_SIZE * 0.5 - BORDER;
+        double x = (j + 0.5) * squareSize + BORDER;
+        double y = (i + 0.5) * squareSize + BORDER;
+        double radius = squareSize * 0.5 - markInset();
         Circle o = new Circle(x, y, radius);
         o.setFill(Color.WHITE);
         o.setStroke(Color.BLUE);
-        o.setStrokeWidth(10);
+        o.setStrokeWidth(squareSize / 20);
         letters.getChildren().add(o);
     }
 
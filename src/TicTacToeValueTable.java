@@ -0,0 +1,135 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// This class holds a learned estimate of how good every 3x3 position is for the side to move, from -1 (lost) to 1
+// (won). Positions are numbered in base 3, with a 1 for each square of the side to move and a 2 for each square of
+// their opponent, so the same entry serves whether X or O is to move. The eight rotations and reflections of a
+// position always share one entry, which cuts the number of positions to learn by nearly eight times.
+//
+// Values are stored as the bits of floats in an AtomicIntegerArray, so that many training threads can update the
+// table at once without locks. Saved tables hold one signed byte per entry, scaled by 127, and nothing for the
+// positions that share another's entry.
+class TicTacToeValueTable {
+
+    static final int SIZE = 19683;
+
+    private static final int MAGIC = 0x54545456;
+    private static final int VERSION = 2;
+
+    // SYMMETRIES[s][square] is where square ends up under each rotation and reflection of the board
+    private static final int[][] SYMMETRIES = {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8},
+            {6, 3, 0, 7, 4, 1, 8, 5, 2},
+            {8, 7, 6, 5, 4, 3, 2, 1, 0},
+            {2, 5, 8, 1, 4, 7, 0, 3, 6},
+            {2, 1, 0, 5, 4, 3, 8, 7, 6},
+            {6, 7, 8, 3, 4, 5, 0, 1, 2},
+            {0, 3, 6, 1, 4, 7, 2, 5, 8},
+            {8, 5, 2, 7, 4, 1, 6, 3, 0}
+    };
+
+    // CANONICAL[index] is the smallest index among the symmetries of each position, which is the entry it uses
+    private static final int[] CANONICAL = new int[SIZE];
+
+    // The number of distinct entries, one for each position that is its own canonical index
+    private static final int ENTRIES;
+
+    static {
+        int[] powers = new int[9];
+        powers[0] = 1;
+        for (int i = 1 ; i < 9 ; i++) {
+            powers[i] = powers[i - 1] * 3;
+        }
+        for (int index = 0 ; index < SIZE ; index++) {
+            int canonical = Integer.MAX_VALUE;
+            for (int[] symmetry : SYMMETRIES) {
+                int transformed = 0;
+                for (int square = 0 ; square < 9 ; square++) {
+                    transformed += index / powers[square] % 3 * powers[symmetry[square]];
+                }
+                canonical = Math.min(canonical, transformed);
+            }
+            CANONICAL[index] = canonical;
+        }
+        int entries = 0;
+        for (int index = 0 ; index < SIZE ; index++) {
+            entries += CANONICAL[index] == index ? 1 : 0;
+        }
+        ENTRIES = entries;
+    }
+
+    private final AtomicIntegerArray values = new AtomicIntegerArray(SIZE);
+
+    // Returns the entry used for the position where the side to move holds mover and their opponent holds opponent
+    static int index(long mover, long opponent) {
+        int index = 0;
+        for (int square = 8 ; square >= 0 ; square--) {
+            index = index * 3 + (int) (mover >>> square & 1) + 2 * (int) (opponent >>> square & 1);
+        }
+        return CANONICAL[index];
+    }
+
+    // Returns the entry used for the position on board, from the point of view of the side to move
+    static int index(TicTacToeBoard board) {
+        boolean xToMove = board.getNextMove() == TileValue.X;
+        return xToMove ? index(board.getXBits(), board.getOBits()) : index(board.getOBits(), board.getXBits());
+    }
+
+    // Returns the value of the given entry
+    float get(int index) {
+        return Float.intBitsToFloat(values.get(index));
+    }
+
+    // Moves the value of the given entry a fraction rate of the way towards target. Other threads may be updating
+    // the same entry, so the new value is only written if the entry hasn't changed since it was read.
+    void update(int index, float target, float rate) {
+        while (true) {
+            int bits = values.get(index);
+            float value = Float.intBitsToFloat(bits);
+            if (values.compareAndSet(index, bits, Float.floatToIntBits(value + rate * (target - value)))) {
+                return;
+            }
+        }
+    }
+
+    // Writes the table to file, creating its directory if needed
+    void save(File file) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(ENTRIES);
+            for (int i = 0 ; i < SIZE ; i++) {
+                if (CANONICAL[i] == i) {
+                    out.writeByte(Math.round(Math.max(-1, Math.min(1, get(i))) * 127));
+                }
+            }
+        }
+    }
+
+    // Reads a table written by save()
+    static TicTacToeValueTable load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != ENTRIES) {
+                throw new IOException(file + " is not a TicTacToe value table");
+            }
+            TicTacToeValueTable table = new TicTacToeValueTable();
+            for (int i = 0 ; i < SIZE ; i++) {
+                if (CANONICAL[i] == i) {
+                    table.values.set(i, Float.floatToIntBits(in.readByte() / 127f));
+                }
+            }
+            return table;
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+// This enumerated type represents all possible states for a square on the board
+enum TileValue {
+    EMPTY,X,O
+}
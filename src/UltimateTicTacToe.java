@@ -0,0 +1,206 @@
+// This class stores a game of ultimate tic tac toe: a 3x3 grid of ordinary 3x3 boards, where winning a small board
+// claims that square of the large board, and each move sends the opponent to the small board matching the square
+// just played in. Each small board is packed into 18 bits of an int (bits 0-8 for X, 9-17 for O, squares numbered
+// row by row), so wins are found with a single table lookup and moves can be played and undone without creating
+// any objects. Moves are numbered 0-80 as board * 9 + square.
+class UltimateTicTacToe {
+
+    static final int NUM_MOVES = 81;
+
+    // Has a bit set for every square of a small board
+    private static final int FULL = 0x1FF;
+
+    // WINS[mask] is true if the 9-bit mask of squares contains three in a row
+    private static final boolean[] WINS = new boolean[1 << 9];
+
+    static {
+        int[] lines = {0x007, 0x038, 0x1C0, 0x049, 0x092, 0x124, 0x111, 0x054};
+        for (int mask = 0 ; mask < WINS.length ; mask++) {
+            for (int line : lines) {
+                if ((mask & line) == line) {
+                    WINS[mask] = true;
+                }
+            }
+        }
+    }
+
+    // The 18-bit state of each small board
+    private final int[] boards = new int[9];
+
+    // 9-bit masks of the small boards won by X, won by O, or filled without a winner
+    private int wonX;
+    private int wonO;
+    private int drawn;
+
+    // The small board the next move must be played in, or -1 if any open board may be used
+    private int forcedBoard = -1;
+
+    private int numMoves;
+    private WinCondition gameStatus = WinCondition.NONE;
+
+    // The moves played so far and the forced board before each one, used to undo moves
+    private final int[] moveHistory = new int[NUM_MOVES];
+    private final int[] forcedHistory = new int[NUM_MOVES];
+
+    // Constructs an empty game with X to move
+    UltimateTicTacToe() {
+    }
+
+    // Constructs a copy of another game
+    UltimateTicTacToe(UltimateTicTacToe other) {
+        System.arraycopy(other.boards, 0, boards, 0, boards.length);
+        wonX = other.wonX;
+        wonO = other.wonO;
+        drawn = other.drawn;
+        forcedBoard = other.forcedBoard;
+        numMoves = other.numMoves;
+        gameStatus = other.gameStatus;
+        System.arraycopy(other.moveHistory, 0, moveHistory, 0, numMoves);
+        System.arraycopy(other.forcedHistory, 0, forcedHistory, 0, numMoves);
+    }
+
+    // Returns the token that will be used for the next move
+    TileValue getNextMove() {
+        return (numMoves & 1) == 0 ? TileValue.X : TileValue.O;
+    }
+
+    // Returns the current status of the game
+    WinCondition getGameStatus() {
+        return gameStatus;
+    }
+
+    int getNumMoves() {
+        return numMoves;
+    }
+
+    // Returns the most recent move, or -1 if none has been played
+    int getLastMove() {
+        return numMoves == 0 ? -1 : moveHistory[numMoves - 1];
+    }
+
+    // Returns the small board the next move must be played in, or -1 if any open board may be used
+    int getForcedBoard() {
+        return forcedBoard;
+    }
+
+    // Returns the value of the given square of the given small board
+    TileValue getTileValue(int board, int square) {
+        int state = boards[board];
+        if ((state & (1 << square)) != 0) {
+            return TileValue.X;
+        }
+        else if ((state & (1 << (square + 9))) != 0) {
+            return TileValue.O;
+        }
+        else {
+            return TileValue.EMPTY;
+        }
+    }
+
+    // Returns who has won the given small board, DRAW if it filled up without a winner, or NONE if it is still open
+    WinCondition getBoardStatus(int board) {
+        int bit = 1 << board;
+        if ((wonX & bit) != 0) {
+            return WinCondition.X;
+        }
+        else if ((wonO & bit) != 0) {
+            return WinCondition.O;
+        }
+        else if ((drawn & bit) != 0) {
+            return WinCondition.DRAW;
+        }
+        else {
+            return WinCondition.NONE;
+        }
+    }
+
+    // Returns a mask of the small boards the next move may be played in
+    int getPlayableBoards() {
+        if (gameStatus != WinCondition.NONE) {
+            return 0;
+        }
+        else if (forcedBoard >= 0) {
+            return 1 << forcedBoard;
+        }
+        else {
+            return ~(wonX | wonO | drawn) & FULL;
+        }
+    }
+
+    // Returns true if the given move may be played next
+    boolean isLegalMove(int move) {
+        if (move < 0 || move >= NUM_MOVES || (getPlayableBoards() & (1 << (move / 9))) == 0) {
+            return false;
+        }
+        int state = boards[move / 9];
+        return ((state | state >>> 9) & (1 << (move % 9))) == 0;
+    }
+
+    // Writes every legal move into moves, which must have room for 81, and returns how many there are
+    int generateMoves(int[] moves) {
+        int count = 0;
+        for (int playable = getPlayableBoards() ; playable != 0 ; playable &= playable - 1) {
+            int board = Integer.numberOfTrailingZeros(playable);
+            int state = boards[board];
+            for (int empty = ~(state | state >>> 9) & FULL ; empty != 0 ; empty &= empty - 1) {
+                moves[count++] = board * 9 + Integer.numberOfTrailingZeros(empty);
+            }
+        }
+        return count;
+    }
+
+    // Plays the given move, which must be legal, and updates the small and large boards
+    void play(int move) {
+        int board = move / 9;
+        int square = move % 9;
+        boolean x = (numMoves & 1) == 0;
+        moveHistory[numMoves] = move;
+        forcedHistory[numMoves] = forcedBoard;
+        numMoves++;
+
+        int state = boards[board] | (1 << (x ? square : square + 9));
+        boards[board] = state;
+        int bit = 1 << board;
+        if (WINS[x ? state & FULL : state >>> 9]) {
+            if (x) {
+                wonX |= bit;
+            }
+            else {
+                wonO |= bit;
+            }
+        }
+        else if (((state | state >>> 9) & FULL) == FULL) {
+            drawn |= bit;
+        }
+
+        int closed = wonX | wonO | drawn;
+        if (WINS[x ? wonX : wonO]) {
+            gameStatus = x ? WinCondition.X : WinCondition.O;
+        }
+        else if (closed == FULL) {
+            gameStatus = WinCondition.DRAW;
+        }
+
+        // The opponent is sent to the board matching the square just played, unless that board is closed
+        forcedBoard = (closed & (1 << square)) == 0 ? square : -1;
+    }
+
+    // Takes back the most recent move
+    void undo() {
+        numMoves--;
+        int move = moveHistory[numMoves];
+        int board = move / 9;
+        int square = move % 9;
+        boolean x = (numMoves & 1) == 0;
+        boards[board] &= ~(1 << (x ? square : square + 9));
+
+        // A board can only have been closed by the move that is being taken back, so reopening it is safe
+        int open = ~(1 << board);
+        wonX &= open;
+        wonO &= open;
+        drawn &= open;
+        forcedBoard = forcedHistory[numMoves];
+        gameStatus = WinCondition.NONE;
+    }
+
+}
@@ -0,0 +1,179 @@
+import java.util.SplittableRandom;
+
+// This class chooses moves in ultimate tic tac toe using Monte Carlo tree search (UCT), which suits the game's
+// large branching factor better than a fixed-depth search. The tree is stored in preallocated parallel arrays, with
+// each node's children kept next to each other, so that a search creates no objects while it runs.
+class UltimateTicTacToeAI {
+
+    // Balances exploring rarely tried moves against exploiting moves that have done well so far
+    private static final double EXPLORATION = 1.4;
+
+    // The clock is only checked once every this many iterations, since reading it costs more than an iteration
+    private static final int ITERATIONS_PER_CLOCK_CHECK = 64;
+
+    // The tree stops growing once it holds this many nodes, though the search carries on refining it
+    private static final int MAX_NODES = 1 << 20;
+
+    private final SplittableRandom random;
+    private long nodeCount;
+
+    // Each tree node is an index into these arrays
+    private final byte[] move = new byte[MAX_NODES];
+    private final int[] firstChild = new int[MAX_NODES];
+    private final byte[] numChildren = new byte[MAX_NODES];
+    private final int[] visits = new int[MAX_NODES];
+    private final float[] wins = new float[MAX_NODES];
+    private int size;
+
+    // Scratch space for one iteration: the tree nodes visited and the moves available in a position
+    private final int[] pathNodes = new int[UltimateTicTacToe.NUM_MOVES + 1];
+    private final int[] moves = new int[UltimateTicTacToe.NUM_MOVES];
+
+    UltimateTicTacToeAI() {
+        this(new SplittableRandom());
+    }
+
+    // Constructs an AI with its own source of random numbers, so that games can be repeated
+    UltimateTicTacToeAI(SplittableRandom random) {
+        this.random = random;
+    }
+
+    // Returns the move to play in game, searching until System.nanoTime() passes deadline or the calling thread is
+    // interrupted. The game is left as it was found.
+    int chooseMove(UltimateTicTacToe game, long deadline) {
+        size = 0;
+        int root = newNode(-1);
+        expand(game, root);
+        if (numChildren[root] == 1) {
+            return move[firstChild[root]];
+        }
+        for (int i = 0 ; ; i++) {
+            if (i % ITERATIONS_PER_CLOCK_CHECK == 0 && i > 0 && TicTacToePlayer.isOutOfTime(deadline)) {
+                break;
+            }
+            iterate(game, root);
+        }
+
+        // The most visited move is the most reliable choice
+        int best = firstChild[root];
+        for (int c = 0 ; c < numChildren[root] ; c++) {
+            if (visits[firstChild[root] + c] > visits[best]) {
+                best = firstChild[root] + c;
+            }
+        }
+        return move[best];
+    }
+
+    // Returns the total number of positions examined so far, for measuring search speed
+    long getNodeCount() {
+        return nodeCount;
+    }
+
+    // Runs one select, expand, simulate, and backpropagate cycle starting from game, then restores game
+    private void iterate(UltimateTicTacToe game, int root) {
+        int depth = 0;
+        int node = root;
+        pathNodes[0] = root;
+
+        // Selection: descends through expanded nodes by the UCT formula
+        while (numChildren[node] > 0) {
+            node = selectChild(node);
+            game.play(move[node]);
+            pathNodes[++depth] = node;
+        }
+
+        // Expansion: a node's children are only created once it has been visited, to keep the tree small
+        if (game.getGameStatus() == WinCondition.NONE && visits[node] > 0 && size + 81 <= MAX_NODES) {
+            expand(game, node);
+            node = firstChild[node] + random.nextInt(numChildren[node]);
+            game.play(move[node]);
+            pathNodes[++depth] = node;
+        }
+        int treeDepth = depth;
+
+        // Simulation: plays random moves until the game ends
+        while (game.getGameStatus() == WinCondition.NONE) {
+            int count = game.generateMoves(moves);
+            game.play(moves[random.nextInt(count)]);
+            depth++;
+            nodeCount++;
+        }
+        WinCondition result = game.getGameStatus();
+
+        // Restores the game to the end of the tree path
+        for ( ; depth > treeDepth ; depth--) {
+            game.undo();
+        }
+
+        // Backpropagation: credits each node from the point of view of the side that moved into it
+        for (int d = treeDepth ; d >= 0 ; d--) {
+            int n = pathNodes[d];
+            visits[n]++;
+            if (d > 0) {
+                TileValue mover = game.getNextMove() == TileValue.X ? TileValue.O : TileValue.X;
+                if (result == WinCondition.DRAW) {
+                    wins[n] += 0.5f;
+                }
+                else if ((result == WinCondition.X) == (mover == TileValue.X)) {
+                    wins[n] += 1;
+                }
+                game.undo();
+            }
+        }
+    }
+
+    // Creates a child of node for every legal move in game
+    private void expand(UltimateTicTacToe game, int node) {
+        int count = game.generateMoves(moves);
+        firstChild[node] = size;
+        numChildren[node] = (byte) count;
+        for (int i = 0 ; i < count ; i++) {
+            newNode(moves[i]);
+        }
+    }
+
+    // Returns the child of node with the highest upper confidence bound, trying unvisited children first
+    private int selectChild(int node) {
+        double logVisits = Math.log(visits[node]);
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = firstChild[node] ; child < firstChild[node] + numChildren[node] ; child++) {
+            if (visits[child] == 0) {
+                return child;
+            }
+            double value = wins[child] / visits[child] + EXPLORATION * Math.sqrt(logVisits / visits[child]);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Adds a node for the given move and returns its index
+    private int newNode(int square) {
+        int n = size++;
+        move[n] = (byte) square;
+        firstChild[n] = -1;
+        numChildren[n] = 0;
+        visits[n] = 0;
+        wins[n] = 0;
+        nodeCount++;
+        return n;
+    }
+
+    // Plays the AI against itself with the given number of milliseconds per move, and reports its search speed
+    public static void main(String[] args) {
+        long millisPerMove = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        UltimateTicTacToe game = new UltimateTicTacToe();
+        UltimateTicTacToeAI ai = new UltimateTicTacToeAI();
+        long start = System.nanoTime();
+        while (game.getGameStatus() == WinCondition.NONE) {
+            game.play(ai.chooseMove(game, System.nanoTime() + millisPerMove * 1_000_000));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s after %d moves, %.0f nodes/s%n", game.getGameStatus(), game.getNumMoves(),
+                ai.getNodeCount() / seconds);
+    }
+
+}
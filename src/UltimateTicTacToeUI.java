@@ -0,0 +1,286 @@
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Pos;
+import javafx.scene.Cursor;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.stage.Stage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class UltimateTicTacToeUI extends Application {
+
+    // These constants will be used to create the dimensions of the game board
+    private static final double SQUARE_SIZE = 60;
+    private static final double BORDER = 25;
+    private static final double BOARD_SIZE = SQUARE_SIZE * 9;
+
+    // The computer is given this long to think about each move
+    private static final long COMPUTER_TIME_BUDGET_MILLIS = 1000;
+
+    // The UltimateTicTacToe object contains all information about the state of the game
+    private UltimateTicTacToe game;
+    private boolean twoPlayerMode;
+    private TileValue computerToken;
+
+    // The computer thinks on this thread so that the window stays responsive
+    private final ExecutorService computerThread = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Ultimate TicTacToe computer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The computer's search tree is large, so one is kept and reused for every move. It is only used on
+    // computerThread, one move at a time.
+    private final UltimateTicTacToeAI computer = new UltimateTicTacToeAI();
+
+    // These nodes are all used in scene1 to select how the game will be played
+    private Text greeting = new Text("Select mode of play:");
+    private Button pvp = new Button("Player vs. Player");
+    private Button pvc = new Button("Player vs. Computer");
+    private Button playerFirst = new Button("Player goes first");
+    private Button computerFirst = new Button("Computer goes first");
+    private FlowPane buttons = new FlowPane(pvp, pvc);
+    private VBox pane1 = new VBox(greeting, buttons);
+    private Scene scene1 = new Scene(pane1, 500, 400);
+
+    // These nodes are all used in scene2 to construct the game board. Highlights show which small boards may be
+    // played in, marks holds the Xs and Os, and winners holds the large tokens drawn over finished small boards.
+    private Pane highlights = new Pane();
+    private Pane grid = new Pane();
+    private Pane marks = new Pane();
+    private Pane winners = new Pane();
+    private StackPane pane2 = new StackPane(highlights, grid, marks, winners);
+    private Scene scene2 = new Scene(pane2, BOARD_SIZE + BORDER * 2, BOARD_SIZE + BORDER * 2);
+    private Rectangle[] boardHighlights = new Rectangle[9];
+
+    // These nodes appear only once the game is over
+    private Text gameOverMessage = new Text();
+    private Button playAgainButton = new Button("Play Again");
+    private VBox gameOverPane = new VBox(gameOverMessage, playAgainButton);
+
+    @Override
+    public void start(Stage primaryStage) {
+
+        // Sets font, spacing, and alignment for Nodes in scene1
+        greeting.setTextAlignment(TextAlignment.CENTER);
+        greeting.setFont(new Font(30));
+        gameOverMessage.setTextAlignment(TextAlignment.CENTER);
+        gameOverMessage.setFont(new Font(60));
+        pvp.setFont(new Font(20));
+        pvc.setFont(new Font(20));
+        playAgainButton.setFont(new Font(20));
+        playerFirst.setFont(new Font(20));
+        computerFirst.setFont(new Font(20));
+        buttons.setAlignment(Pos.CENTER);
+        buttons.setHgap(10);
+        pane1.setAlignment(Pos.CENTER);
+        pane1.setSpacing(40);
+
+        // Sets alignment and spacing for gameOverPane
+        gameOverPane.setAlignment(Pos.CENTER);
+        gameOverPane.setSpacing(40);
+
+        // Draws thin lines between squares and thick lines between small boards, and the highlight behind each
+        // small board
+        for (int i = 1 ; i < 9 ; i++) {
+            double offset = i * SQUARE_SIZE + BORDER;
+            Line vLine = new Line(offset, BORDER, offset, BOARD_SIZE + BORDER);
+            Line hLine = new Line(BORDER, offset, BOARD_SIZE + BORDER, offset);
+            vLine.setStrokeWidth(i % 3 == 0 ? 5 : 1);
+            hLine.setStrokeWidth(i % 3 == 0 ? 5 : 1);
+            grid.getChildren().addAll(vLine, hLine);
+        }
+        for (int b = 0 ; b < 9 ; b++) {
+            boardHighlights[b] = new Rectangle(b % 3 * SQUARE_SIZE * 3 + BORDER, b / 3 * SQUARE_SIZE * 3 + BORDER,
+                    SQUARE_SIZE * 3, SQUARE_SIZE * 3);
+            boardHighlights[b].setFill(Color.LIGHTYELLOW);
+        }
+        highlights.getChildren().addAll(boardHighlights);
+
+        // If Player vs. Computer is selected, updates the buttons pane to include options for who goes first
+        pvc.setOnAction(e -> {
+            buttons.getChildren().clear();
+            buttons.getChildren().addAll(playerFirst, computerFirst);
+        });
+
+        // Starts a game in the selected mode and changes the scene to scene2 (the game board)
+        pvp.setOnAction(e -> startGame(primaryStage, true, TileValue.EMPTY));
+        playerFirst.setOnAction(e -> startGame(primaryStage, false, TileValue.O));
+        computerFirst.setOnAction(e -> startGame(primaryStage, false, TileValue.X));
+
+        // This action listener is used to detect player moves on the board. The square clicked is worked out
+        // directly from the coordinates of the click.
+        pane2.setOnMouseClicked(e -> {
+            if (game.getGameStatus() == WinCondition.NONE && !isComputerTurn()) {
+                int column = (int) Math.floor((e.getX() - BORDER) / SQUARE_SIZE);
+                int row = (int) Math.floor((e.getY() - BORDER) / SQUARE_SIZE);
+                if (row >= 0 && row < 9 && column >= 0 && column < 9) {
+                    int move = (row / 3 * 3 + column / 3) * 9 + row % 3 * 3 + column % 3;
+                    if (game.isLegalMove(move)) {
+                        play(move);
+                    }
+                }
+            }
+        });
+
+        // If playAgainButton is pressed, reset the board and return to selecting mode of play
+        playAgainButton.setOnAction(e -> {
+            marks.setOpacity(1);
+            winners.setOpacity(1);
+            grid.setOpacity(1);
+            pane2.getChildren().remove(gameOverPane);
+            marks.getChildren().clear();
+            winners.getChildren().clear();
+            buttons.getChildren().clear();
+            buttons.getChildren().addAll(pvp, pvc);
+            primaryStage.setScene(scene1);
+        });
+
+        // Sets title and initial scene for primaryStage, makes window size constant, and launches window
+        primaryStage.setTitle("Ultimate Tic Tac Toe");
+        primaryStage.setScene(scene1);
+        primaryStage.setResizable(false);
+        primaryStage.show();
+    }
+
+    // This method starts a new game, with the computer playing computerToken unless twoPlayerMode is true
+    private void startGame(Stage primaryStage, boolean twoPlayerMode, TileValue computerToken) {
+        game = new UltimateTicTacToe();
+        this.twoPlayerMode = twoPlayerMode;
+        this.computerToken = computerToken;
+        updateHighlights();
+        primaryStage.setScene(scene2);
+        if (isComputerTurn()) {
+            startComputerMove();
+        }
+    }
+
+    // Returns true if the game is still going and the computer has the next move
+    private boolean isComputerTurn() {
+        return !twoPlayerMode && game.getGameStatus() == WinCondition.NONE && game.getNextMove() == computerToken;
+    }
+
+    // This method plays a move, draws it, and then either lets the computer take its turn or ends the game
+    private void play(int move) {
+        TileValue token = game.getNextMove();
+        int board = move / 9;
+        game.play(move);
+        double x = (board % 3 * 3 + move % 9 % 3) * SQUARE_SIZE + BORDER;
+        double y = (board / 3 * 3 + move % 9 / 3) * SQUARE_SIZE + BORDER;
+        drawToken(marks, token, x, y, SQUARE_SIZE, 4);
+
+        // Draws a large token over a small board once it has been won
+        WinCondition boardStatus = game.getBoardStatus(board);
+        if (boardStatus == WinCondition.X || boardStatus == WinCondition.O) {
+            drawToken(winners, boardStatus == WinCondition.X ? TileValue.X : TileValue.O,
+                    board % 3 * SQUARE_SIZE * 3 + BORDER, board / 3 * SQUARE_SIZE * 3 + BORDER, SQUARE_SIZE * 3, 12);
+        }
+        updateHighlights();
+
+        if (isComputerTurn()) {
+            startComputerMove();
+        }
+        else if (game.getGameStatus() != WinCondition.NONE) {
+            marks.setOpacity(0.3);
+            winners.setOpacity(0.3);
+            grid.setOpacity(0.3);
+            pane2.getChildren().add(gameOverPane);
+
+            // Sets text on gameOverPane to reflect the win condition and the mode of play
+            if (game.getGameStatus() == WinCondition.DRAW) {
+                gameOverMessage.setText("DRAW");
+            }
+            else if (twoPlayerMode) {
+                gameOverMessage.setText(game.getGameStatus() == WinCondition.X ? "X wins!" : "O wins!");
+            }
+            else if ((game.getGameStatus() == WinCondition.X) == (computerToken == TileValue.X)) {
+                gameOverMessage.setText("You lose!\nAnother demonstration\nof AI superiority!");
+            }
+            else {
+                gameOverMessage.setText("You win!\nI am humbled by\nyour intelligence!");
+            }
+        }
+    }
+
+    // This method shows the highlight behind each small board the next move may be played in
+    private void updateHighlights() {
+        int playable = game.getPlayableBoards();
+        for (int b = 0 ; b < 9 ; b++) {
+            boardHighlights[b].setVisible((playable & (1 << b)) != 0);
+        }
+    }
+
+    // This method has the computer choose its move on computerThread, then plays the move back on the JavaFX
+    // thread. Clicks on the board are ignored until then. If the computer fails to choose a legal move, the first
+    // legal move is played for it, so that the game can go on.
+    private void startComputerMove() {
+        UltimateTicTacToe copy = new UltimateTicTacToe(game);
+        long budget = TimeUnit.MILLISECONDS.toNanos(COMPUTER_TIME_BUDGET_MILLIS);
+        pane2.setCursor(Cursor.WAIT);
+        computerThread.submit(() -> {
+            int move;
+            try {
+                move = computer.chooseMove(copy, System.nanoTime() + budget);
+            }
+            catch (RuntimeException e) {
+                move = -1;
+            }
+            int chosen = move;
+            Platform.runLater(() -> playComputerMove(chosen));
+        });
+    }
+
+    // This method plays the computer's chosen move, or the first legal move if that one can't be played, and gives
+    // the board back to the player
+    private void playComputerMove(int move) {
+        pane2.setCursor(Cursor.DEFAULT);
+        if (!isComputerTurn()) {
+            return;
+        }
+        if (!game.isLegalMove(move)) {
+            int[] moves = new int[81];
+            if (game.generateMoves(moves) == 0) {
+                return;
+            }
+            move = moves[0];
+        }
+        play(move);
+    }
+
+    // This method draws a red X or blue O in the square of the given size with its top left corner at (x, y)
+    private static void drawToken(Pane pane, TileValue token, double x, double y, double size, double width) {
+        double inset = size * 0.15;
+        if (token == TileValue.X) {
+            Line line1 = new Line(x + inset, y + size - inset, x + size - inset, y + inset);
+            Line line2 = new Line(x + inset, y + inset, x + size - inset, y + size - inset);
+            line1.setStrokeWidth(width);
+            line2.setStrokeWidth(width);
+            line1.setStroke(Color.RED);
+            line2.setStroke(Color.RED);
+            pane.getChildren().addAll(line1, line2);
+        }
+        else {
+            Circle o = new Circle(x + size / 2, y + size / 2, size / 2 - inset);
+            o.setFill(Color.TRANSPARENT);
+            o.setStroke(Color.BLUE);
+            o.setStrokeWidth(width);
+            pane.getChildren().add(o);
+        }
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+}
@@ -0,0 +1,4 @@
+// This enumerated type represents all possible win conditions for the game
+enum WinCondition {
+    NONE,X,O,DRAW
+}